@@ -0,0 +1,278 @@
+package com.swvl.geometry;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * Shamos-Hoey sweep line detecting whether an edge of one polygon intersects an edge of
+ * another polygon in O((n + m) log(n + m)) time instead of testing all n * m pairs.
+ * <p>
+ * Edges of both polygons are swept from left to right (ties broken by y, so vertical edges
+ * are swept from bottom to top) while a balanced tree keeps the edges cut by the sweep line
+ * ordered by y. The first intersection between edges of different polygons is found when
+ * they become neighbours in the tree, either on insertion of an edge or on removal of the
+ * edge between them. Edges of the same polygon are never tested against each other, since
+ * consecutive edges share their vertex; thus the polygons are assumed to be simple.
+ * <p>
+ * Edges intersect when they cross or when an end point of one of them lies within EPS of
+ * the other, as in {@link Utilities#onEdge(double, double, double, double, double, double)}.
+ * The same sweep tests whether a single ring is simple, where any two edges which are not
+ * consecutive are tested against each other, and consecutive edges are tested for folding back
+ * onto each other.
+ *
+ * @author Hatem Morgan
+ */
+public final class SegmentSweep {
+    /* End points of edges where (x1, y1) precedes (x2, y2) in sweep order */
+    private final double[] x1, y1, x2, y2;
+
+    /* Polygon of every edge (0 or 1) */
+    private final byte[] polygon;
+
+    /* Number of vertices of the ring in self intersection mode */
+    private final int ringSize;
+
+    /* Event point and whether edges are ordered just before or just after it */
+    private double sweepX, sweepY;
+    private boolean before;
+
+    private final TreeSet<Integer> status;
+
+    /**
+     * @param capacity number of edges
+     * @param ringSize number of vertices of the single ring tested for self intersection, or
+     *                 0 when testing edges of two polygons against each other
+     */
+    private SegmentSweep(int capacity, int ringSize) {
+        x1 = new double[capacity];
+        y1 = new double[capacity];
+        x2 = new double[capacity];
+        y2 = new double[capacity];
+        polygon = new byte[capacity];
+        this.ringSize = ringSize;
+
+        status = new TreeSet<Integer>(new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return compareEdges(a, b);
+            }
+        });
+    }
+
+    /**
+     * Check if any edge of the first polygon intersects an edge of the second polygon. Each
+     * polygon is given by the coordinates of its n vertices where the ring is closed by the
+     * edge from the last vertex to the first one, thus the first vertex may or may not be
+     * repeated at the end.
+     */
+    public static boolean edgesIntersect(double[] xs1, double[] ys1, int n1, double[] xs2, double[] ys2, int n2) {
+        SegmentSweep sweep = new SegmentSweep(n1 + n2, 0);
+        int size = sweep.addEdges(xs1, ys1, n1, (byte) 0, 0);
+        size = sweep.addEdges(xs2, ys2, n2, (byte) 1, size);
+        return sweep.sweep(size);
+    }
+
+    /**
+     * Check if a ring of n vertices is not simple, where two of its edges which are not
+     * consecutive cross or touch, or it passes twice through a vertex. Repeated consecutive
+     * vertices and a first vertex repeated at the end are ignored.
+     */
+    public static boolean selfIntersects(double[] xs, double[] ys, int n) {
+        /* Drop repeated vertices so that edge i is from vertex i to vertex i + 1 of the ring */
+        double[] ringXs = new double[n], ringYs = new double[n];
+        int m = 0;
+        for (int i = 0; i < n; ++i)
+            if (m == 0 || xs[i] != ringXs[m - 1] || ys[i] != ringYs[m - 1]) {
+                ringXs[m] = xs[i];
+                ringYs[m] = ys[i];
+                ++m;
+            }
+        while (m > 1 && ringXs[m - 1] == ringXs[0] && ringYs[m - 1] == ringYs[0])
+            --m;
+        if (m < 4)
+            return false;
+
+        SegmentSweep sweep = new SegmentSweep(m, m);
+        for (int i = 0; i < m; ++i)
+            sweep.setEdge(i, ringXs[i], ringYs[i], ringXs[(i + 1) % m], ringYs[(i + 1) % m], (byte) 0);
+        return sweep.sweep(m);
+    }
+
+    /**
+     * Append edges of a ring skipping edges of zero length
+     */
+    private int addEdges(double[] xs, double[] ys, int n, byte id, int size) {
+        for (int i = 0, j = n - 1; i < n; j = i++)
+            if (xs[i] != xs[j] || ys[i] != ys[j])
+                setEdge(size++, xs[j], ys[j], xs[i], ys[i], id);
+        return size;
+    }
+
+    /**
+     * Set edge e ordering its end points in sweep order
+     */
+    private void setEdge(int e, double xa, double ya, double xb, double yb, byte id) {
+        boolean forward = xa < xb || (xa == xb && ya < yb);
+        x1[e] = forward ? xa : xb;
+        y1[e] = forward ? ya : yb;
+        x2[e] = forward ? xb : xa;
+        y2[e] = forward ? yb : ya;
+        polygon[e] = id;
+    }
+
+    private boolean sweep(int size) {
+        Integer[] edges = new Integer[size];
+        for (int i = 0; i < size; ++i)
+            edges[i] = i;
+
+        /* Event 2 * e is the left end point of edge e and event 2 * e + 1 is its right end point */
+        Integer[] events = new Integer[2 * size];
+        for (int i = 0; i < events.length; ++i)
+            events[i] = i;
+        Arrays.sort(events, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                double ax = eventX(a), bx = eventX(b);
+                if (ax != bx)
+                    return ax < bx ? -1 : 1;
+                double ay = eventY(a), by = eventY(b);
+                if (ay != by)
+                    return ay < by ? -1 : 1;
+                return a - b;
+            }
+        });
+
+        for (int first = 0, last; first < events.length; first = last) {
+            sweepX = eventX(events[first]);
+            sweepY = eventY(events[first]);
+
+            /*
+             * Events at the same point where both polygons have a vertex there, or a ring
+             * passes more than once through it
+             */
+            int seen = 0;
+            for (last = first; last < events.length && eventX(events[last]) == sweepX
+                    && eventY(events[last]) == sweepY; ++last)
+                seen |= 1 << polygon[events[last] / 2];
+            if (ringSize == 0 ? seen == 3 : last - first > 2)
+                return true;
+
+            /* Edges ending here are ordered as they were just before the event point */
+            before = true;
+            for (int k = first; k < last; ++k) {
+                if (events[k] % 2 == 0)
+                    continue;
+
+                Integer edge = edges[events[k] / 2];
+                Integer lower = status.lower(edge), higher = status.higher(edge);
+                status.remove(edge);
+                if (lower != null && higher != null && intersect(lower, higher))
+                    return true;
+            }
+
+            /* Edges starting here are ordered as they will be just after the event point */
+            before = false;
+            for (int k = first; k < last; ++k) {
+                if (events[k] % 2 == 1)
+                    continue;
+
+                Integer edge = edges[events[k] / 2];
+                status.add(edge);
+                Integer lower = status.lower(edge), higher = status.higher(edge);
+                if ((lower != null && intersect(lower, edge)) || (higher != null && intersect(edge, higher)))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private double eventX(int event) {
+        return event % 2 == 0 ? x1[event / 2] : x2[event / 2];
+    }
+
+    private double eventY(int event) {
+        return event % 2 == 0 ? y1[event / 2] : y2[event / 2];
+    }
+
+    /**
+     * Order of edges cut by the sweep line at the event point, where edges passing through
+     * the event point are ordered by slope as they are just before or just after it
+     */
+    private int compareEdges(int a, int b) {
+        if (a == b)
+            return 0;
+
+        double ya = yAt(a), yb = yAt(b);
+        if (ya != yb)
+            return ya < yb ? -1 : 1;
+
+        double sa = slope(a), sb = slope(b);
+        if (sa != sb)
+            return (sa < sb) != before ? -1 : 1;
+        return a < b ? -1 : 1;
+    }
+
+    /**
+     * y-coordinate of edge on the sweep line where a vertical edge is cut at the event point
+     * clamped to its end points
+     */
+    private double yAt(int e) {
+        if (x1[e] == x2[e])
+            return Math.max(y1[e], Math.min(y2[e], sweepY));
+        if (sweepX == x1[e])
+            return y1[e];
+        if (sweepX == x2[e])
+            return y2[e];
+        return y1[e] + (sweepX - x1[e]) * (y2[e] - y1[e]) / (x2[e] - x1[e]);
+    }
+
+    private double slope(int e) {
+        return x1[e] == x2[e] ? Double.POSITIVE_INFINITY : (y2[e] - y1[e]) / (x2[e] - x1[e]);
+    }
+
+    /**
+     * Check if edges of different polygons, or non-consecutive edges of a ring, cross or
+     * touch within EPS. Consecutive edges of a ring intersect only when one of them folds back
+     * onto the other.
+     */
+    private boolean intersect(int a, int b) {
+        if (ringSize == 0) {
+            if (polygon[a] == polygon[b])
+                return false;
+        } else if (Math.abs(a - b) == 1 || Math.abs(a - b) == ringSize - 1) {
+            return foldsOnto(a, b) || foldsOnto(b, a);
+        }
+
+        double d1 = orientation(a, x1[b], y1[b]), d2 = orientation(a, x2[b], y2[b]);
+        double d3 = orientation(b, x1[a], y1[a]), d4 = orientation(b, x2[a], y2[a]);
+        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0)))
+            return true;
+
+        return Utilities.onEdge(x1[b], y1[b], x1[a], y1[a], x2[a], y2[a])
+                || Utilities.onEdge(x2[b], y2[b], x1[a], y1[a], x2[a], y2[a])
+                || Utilities.onEdge(x1[a], y1[a], x1[b], y1[b], x2[b], y2[b])
+                || Utilities.onEdge(x2[a], y2[a], x1[b], y1[b], x2[b], y2[b]);
+    }
+
+    /**
+     * Check if an end point of edge b other than the vertex it shares with edge a lies within
+     * EPS of edge a, where both edges overlap along a common line
+     */
+    private boolean foldsOnto(int a, int b) {
+        return (!endPoint(a, x1[b], y1[b]) && Utilities.onEdge(x1[b], y1[b], x1[a], y1[a], x2[a], y2[a]))
+                || (!endPoint(a, x2[b], y2[b]) && Utilities.onEdge(x2[b], y2[b], x1[a], y1[a], x2[a], y2[a]));
+    }
+
+    private boolean endPoint(int e, double x, double y) {
+        return (x == x1[e] && y == y1[e]) || (x == x2[e] && y == y2[e]);
+    }
+
+    /**
+     * Cross product of edge e and vector from its first end point to (x, y) which is positive
+     * if (x, y) is on the left side of e
+     */
+    private double orientation(int e, double x, double y) {
+        return (x2[e] - x1[e]) * (y - y1[e]) - (y2[e] - y1[e]) * (x - x1[e]);
+    }
+}
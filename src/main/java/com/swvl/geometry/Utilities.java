@@ -4,6 +4,7 @@ import com.swvl.geometry.shapes.*;
 import sun.security.provider.SHA;
 
 import javax.naming.OperationNotSupportedException;
+import java.util.Arrays;
 
 /**
  * Utilities class to hold common geometrical operations
@@ -14,11 +15,84 @@ public class Utilities {
     /**
      * Winding number algorithm which returns true if the point p lies inside the polygon
      * <p>
-     * A point is inside the polygon if either count of intersections is odd or
+     * A point is inside the polygon if either its winding number is non-zero or
      * point lies on an edge of polygon.  If none of the conditions is true, then
      * point lies outside.
      */
     public static boolean polygonPointIntersection(Point point, Polygon polygon) throws OperationNotSupportedException {
+        Point[] points = polygon.points;
+        double x = point.x, y = point.y;
+
+        int windingNumber = 0;
+        for (int i = 0; i < points.length - 1; ++i) {
+            double x1 = points[i].x, y1 = points[i].y, x2 = points[i + 1].x, y2 = points[i + 1].y;
+
+            if (onEdge(x, y, x1, y1, x2, y2))
+                return true;
+
+            windingNumber += crossing(x, y, x1, y1, x2, y2);
+        }
+
+        return windingNumber != 0;
+    }
+
+    /**
+     * Winding number algorithm on coordinates of polygon vertices using orientation signs only
+     * <p>
+     * Edges are (xs[i], ys[i]) to (xs[i + 1], ys[i + 1]) for i < n - 1 and the ring is closed
+     * by edge (xs[n - 1], ys[n - 1]) to (xs[0], ys[0]), thus the first vertex may or may not be
+     * repeated at the end. Points within EPS of an edge are inside as in
+     * {@link #polygonPointIntersection(Point, Polygon)}.
+     *
+     * @param n number of vertices in xs and ys
+     * @return true if point (x, y) lies inside the polygon or on its boundary
+     */
+    public static boolean polygonPointIntersection(double x, double y, double[] xs, double[] ys, int n) {
+        int windingNumber = 0;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            if (onEdge(x, y, xs[j], ys[j], xs[i], ys[i]))
+                return true;
+
+            windingNumber += crossing(x, y, xs[j], ys[j], xs[i], ys[i]);
+        }
+
+        return windingNumber != 0;
+    }
+
+    /**
+     * Contribution of edge (x1, y1)-(x2, y2) to the winding number of point (x, y): +1 if the
+     * edge crosses the horizontal ray to the right of the point upwards, -1 if it crosses it
+     * downwards and 0 otherwise. Lower end points are included and upper end points are
+     * excluded, thus a vertex on the ray is counted once.
+     */
+    private static int crossing(double x, double y, double x1, double y1, double x2, double y2) {
+        if (y1 <= y) {
+            if (y2 > y && (x2 - x1) * (y - y1) - (x - x1) * (y2 - y1) > 0) // point left of upward edge
+                return 1;
+        } else if (y2 <= y && (x2 - x1) * (y - y1) - (x - x1) * (y2 - y1) < 0) // point right of downward edge
+            return -1;
+
+        return 0;
+    }
+
+    /**
+     * Check if distance between point (x, y) and segment (x1, y1)-(x2, y2) is within EPS
+     */
+    public static boolean onEdge(double x, double y, double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1, dy = y2 - y1;
+        double length2 = dx * dx + dy * dy;
+        double t = length2 == 0 ? 0 : ((x - x1) * dx + (y - y1) * dy) / length2;
+        t = Math.max(0, Math.min(1, t));
+
+        double ex = x1 + t * dx - x, ey = y1 + t * dy - y;
+        return ex * ex + ey * ey <= Shape.EPS * Shape.EPS;
+    }
+
+    /**
+     * Former winding number algorithm summing angles between consecutive vertices by acos,
+     * kept as the baseline of PointInPolygonBenchmark
+     */
+    static boolean polygonPointIntersectionByAngles(Point point, Polygon polygon) throws OperationNotSupportedException {
         double sum = 0.0;
         LineSegment edge = new LineSegment();
         for (int i = 0; i < polygon.points.length - 1; ++i) {
@@ -82,6 +156,28 @@ public class Utilities {
         return false;
     }
 
+    /**
+     * Check if two polygons intersect where either an edge of one polygon intersects an edge
+     * of the other one, found by {@link SegmentSweep}, or one polygon lies inside the other
+     * one, found by testing one vertex of each polygon.
+     */
+    public static boolean polygonPolygonIntersection(Polygon polygon1, Polygon polygon2) {
+        int n1 = polygon1.points.length - 1, n2 = polygon2.points.length - 1;
+        double[] xs1 = new double[n1], ys1 = new double[n1], xs2 = new double[n2], ys2 = new double[n2];
+        for (int i = 0; i < n1; ++i) {
+            xs1[i] = polygon1.points[i].x;
+            ys1[i] = polygon1.points[i].y;
+        }
+        for (int i = 0; i < n2; ++i) {
+            xs2[i] = polygon2.points[i].x;
+            ys2[i] = polygon2.points[i].y;
+        }
+
+        return SegmentSweep.edgesIntersect(xs1, ys1, n1, xs2, ys2, n2)
+                || polygonPointIntersection(xs1[0], ys1[0], xs2, ys2, n2)
+                || polygonPointIntersection(xs2[0], ys2[0], xs1, ys1, n1);
+    }
+
     public static boolean polygonLineIntersection(LineSegment line, Polygon polygon) throws OperationNotSupportedException {
         /* Pointer to current edge in polygon */
         LineSegment edge = new LineSegment();
@@ -205,6 +301,44 @@ public class Utilities {
     }
 
 
+    /**
+     * Andrew's monotone chain convex hull of points sorted by {@link Point#compareTo(Point)},
+     * where the lower hull is built from left to right and the upper hull from right to left.
+     * Collinear points on the hull are dropped.
+     *
+     * @return vertices of hull in counter-clockwise order where the first vertex is repeated
+     * at the end
+     */
+    public static Point[] convexHull(Point[] points) {
+        Point[] sorted = points.clone();
+        Arrays.sort(sorted);
+
+        /* Drop points equal to their predecessor */
+        int n = 0;
+        for (Point point : sorted)
+            if (n == 0 || sorted[n - 1].compareTo(point) != 0)
+                sorted[n++] = point;
+        if (n < 3)
+            throw new IllegalArgumentException("Convex hull needs at least 3 distinct points");
+
+        Point[] hull = new Point[2 * n];
+        int size = 0;
+        for (int i = 0; i < n; ++i) { // lower hull
+            while (size >= 2 && !ccw(hull[size - 2], hull[size - 1], sorted[i]))
+                --size;
+            hull[size++] = sorted[i];
+        }
+        for (int i = n - 2, lower = size + 1; i >= 0; --i) { // upper hull
+            while (size >= lower && !ccw(hull[size - 2], hull[size - 1], sorted[i]))
+                --size;
+            hull[size++] = sorted[i];
+        }
+
+        if (size < 4)
+            throw new IllegalArgumentException("Points of convex hull are collinear");
+        return Arrays.copyOf(hull, size);
+    }
+
     /**
      * Calculate angle AOB
      */
@@ -0,0 +1,233 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Rectangle;
+import com.swvl.geometry.shapes.Shape;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only Rtree answering queries from a file written by {@link RtreeFile} through a
+ * bounded {@link PageCache}. Unlike {@link MappedRtree}, memory used by the index is bounded
+ * by the cache whatever the size of the file. Pages holding the top levels of the tree are
+ * pinned when the file is opened since every query passes through them; other node and
+ * record pages are evicted by the CLOCK policy of the cache.
+ *
+ * @author Hatem Morgan
+ */
+public class CachedRtree implements Closeable {
+    private final RandomAccessFile file;
+
+    private final PageCache cache;
+
+    protected final int degree;
+
+    protected final int height;
+
+    protected final int numNodes;
+
+    protected final int numLeaves;
+
+    protected final long numRecords;
+
+    protected final long nodesOffset;
+
+    protected final long recordsOffset;
+
+    /* Slots of nodes in van Emde Boas order (null when nodes are stored in breadth-first order) */
+    private final VebLayout veb;
+
+    private CachedRtree(RandomAccessFile file, int pageSize, long cacheSize, int pinnedLevels) throws IOException {
+        this.file = file;
+        cache = new PageCache(file.getChannel(), pageSize, cacheSize);
+
+        if (file.length() < RtreeFile.HEADER_SIZE)
+            throw new IOException("Not an Rtree file");
+        ByteBuffer header = read(0, RtreeFile.HEADER_SIZE);
+        if (header.getInt() != RtreeFile.MAGIC)
+            throw new IOException("Not an Rtree file");
+        int version = header.getInt();
+        if (version != RtreeFile.VERSION)
+            throw new IOException("Unsupported Rtree file version " + version);
+
+        degree = header.getInt();
+        height = header.getInt();
+        numNodes = header.getInt();
+        numLeaves = header.getInt();
+        numRecords = header.getLong();
+        nodesOffset = header.getLong();
+        recordsOffset = header.getLong();
+        veb = header.getInt() == Rtree.VAN_EMDE_BOAS ? new VebLayout(height, degree) : null;
+
+        /* Pin nodes of the top levels */
+        int pinnedNodes = 0;
+        for (int level = 0, width = 1; level < Math.min(pinnedLevels, height); ++level, width *= degree)
+            pinnedNodes += width;
+        for (int i = 1; i <= pinnedNodes; ++i)
+            cache.pin(nodePosition(i), RtreeFile.NODE_SIZE);
+    }
+
+    /**
+     * Open an Rtree file
+     *
+     * @param file         Rtree file
+     * @param pageSize     size of a cache page which must be a power of 2
+     * @param cacheSize    maximum number of bytes of cached pages
+     * @param pinnedLevels number of levels from root whose node pages are never evicted
+     */
+    public static CachedRtree open(File file, int pageSize, long cacheSize, int pinnedLevels) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return new CachedRtree(raf, pageSize, cacheSize, pinnedLevels);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        } catch (RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Window query passing every leaf whose MBR intersects the query rectangle to the
+     * visitor. Offsets and sizes passed to the visitor are file positions and byte counts
+     * of records which can be read by {@link #readRecords(long, int)} or one at a time by
+     * {@link #getRecord(long)}.
+     */
+    public void search(Rectangle query, LeafVisitor visitor) throws IOException {
+        if (numRecords == 0)
+            return;
+
+        search(1, numNodes - numLeaves + 1, query.minPoint.x, query.minPoint.y,
+                query.maxPoint.x, query.maxPoint.y, visitor, ByteBuffer.allocate(RtreeFile.NODE_SIZE));
+    }
+
+    private void search(int i, int firstLeaf, double minX, double minY, double maxX, double maxY,
+                        LeafVisitor visitor, ByteBuffer node) throws IOException {
+        node.clear();
+        cache.read(nodePosition(i), node);
+        if (!(node.getDouble(16) + Shape.EPS > minX
+                && node.getDouble(24) + Shape.EPS > minY
+                && maxX + Shape.EPS > node.getDouble(0)
+                && maxY + Shape.EPS > node.getDouble(8)))
+            return;
+
+        if (i >= firstLeaf) {
+            visitor.visit(node.getLong(32), node.getLong(40), node.getInt(48));
+            return;
+        }
+
+        int child = i * degree + 2 - degree;
+        for (int j = 0; j < degree; ++j)
+            search(child + j, firstLeaf, minX, minY, maxX, maxY, visitor, node);
+    }
+
+    /**
+     * Read node at breadth-first index i (root is at 1) where offset and size are positions
+     * in file
+     */
+    public Node getNode(int i) throws IOException {
+        ByteBuffer node = read(nodePosition(i), RtreeFile.NODE_SIZE);
+        int count = node.getInt(48);
+        Rectangle mbr = count == 0 ? null : new Rectangle(node.getDouble(0), node.getDouble(8),
+                node.getDouble(16), node.getDouble(24));
+        return new Node(node.getLong(32), node.getLong(40), count, mbr);
+    }
+
+    /**
+     * Read the records of a node at once
+     *
+     * @param offset file position of first record
+     * @param size   number of bytes of records
+     * @return buffer holding records each encoded as its id followed by its shape
+     */
+    public ByteBuffer readRecords(long offset, int size) throws IOException {
+        return read(offset, size);
+    }
+
+    /**
+     * @param position file position of a record
+     * @return id of record which is its index in the array given to the bulk loader
+     */
+    public long getRecordId(long position) throws IOException {
+        return read(position, 8).getLong();
+    }
+
+    /**
+     * @param position file position of a record
+     */
+    public Shape getRecord(long position) throws IOException {
+        ByteBuffer buffer = read(position + 8, recordLength(position) - 8);
+        return ShapeCodec.read(buffer);
+    }
+
+    /**
+     * @param position file position of a record
+     * @return file position of the record following it
+     */
+    public long nextRecord(long position) throws IOException {
+        return position + recordLength(position);
+    }
+
+    /**
+     * Number of bytes of record including its id
+     */
+    private int recordLength(long position) throws IOException {
+        ByteBuffer buffer = read(position + 8, 5); // type and number of points of polygons
+        byte type = buffer.get(0);
+        if (type == ShapeCodec.POLYGON)
+            return 8 + ShapeCodec.sizeOf(type, buffer.getInt(1));
+        return 8 + ShapeCodec.sizeOf(type, type == ShapeCodec.POINT ? 1 : 2);
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        cache.read(position, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private long nodePosition(int i) {
+        int slot = veb == null ? i : veb.slot(i);
+        return nodesOffset + (long) (slot - 1) * RtreeFile.NODE_SIZE;
+    }
+
+    /**
+     * @return cache of the file with its hit and miss counters
+     */
+    public PageCache getCache() {
+        return cache;
+    }
+
+    public int getDegree() {
+        return degree;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    public int getNumLeaves() {
+        return numLeaves;
+    }
+
+    public long getNumRecords() {
+        return numRecords;
+    }
+
+    public int getLayout() {
+        return veb == null ? Rtree.BREADTH_FIRST : Rtree.VAN_EMDE_BOAS;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
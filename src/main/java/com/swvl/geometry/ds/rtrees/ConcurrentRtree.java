@@ -0,0 +1,204 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Rectangle;
+import com.swvl.geometry.shapes.Shape;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copy-on-write wrapper sharing an {@link Rtree} between many reader threads and background
+ * writers. Readers get an immutable snapshot through a single volatile read without any
+ * locking, thus read throughput scales with cores. Writers build a new version of the tree
+ * and publish it atomically; they are serialized between themselves but never block readers.
+ * <p>
+ * Inserted and removed shapes are buffered and merged into a single rebuild of the tree once
+ * batchSize changes are pending or on {@link #flush()}, thus readers do not see buffered
+ * changes. Rebuilds use the bulk loader, degree and layout of the current version.
+ * <p>
+ * Published trees are frozen and {@link Rtree#setLayout(int)} fails on them. Offsets passed
+ * to visitors and record ids refer to the snapshot that answered the query (ids follow the
+ * order records were inserted in, and removing records renumbers the following ones), thus
+ * readers resolving records should take a {@link #snapshot()} once and use it for both the
+ * query and record access.
+ *
+ * @author Hatem Morgan
+ */
+public class ConcurrentRtree {
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /**
+     * Builds a new version of the tree from the current one
+     */
+    public interface Update {
+        Rtree apply(Rtree current);
+    }
+
+    private volatile Rtree current;
+
+    private final Object writeLock = new Object();
+
+    /* Changes since the last rebuild, guarded by writeLock */
+    private final List<Shape> inserted = new ArrayList<Shape>();
+    private final Map<Shape, Boolean> removed = new IdentityHashMap<Shape, Boolean>();
+    private int numPending;
+
+    private final int batchSize;
+
+    public ConcurrentRtree(Rtree rtree) {
+        this(rtree, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize number of inserted or removed shapes merged by a single rebuild
+     */
+    public ConcurrentRtree(Rtree rtree, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be positive");
+
+        rtree.freeze();
+        this.current = rtree;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the current version of the tree which is never modified
+     */
+    public Rtree snapshot() {
+        return current;
+    }
+
+    /**
+     * Window query on the current snapshot
+     */
+    public void search(Rectangle query, LeafVisitor visitor) {
+        current.search(query, visitor);
+    }
+
+    /**
+     * Replace the current version of the tree. Pending changes are kept and merged into the
+     * new version.
+     */
+    public void publish(Rtree rtree) {
+        synchronized (writeLock) {
+            rtree.freeze();
+            current = rtree;
+        }
+    }
+
+    /**
+     * Merge pending changes, then build a new version from the current one and publish it.
+     * Concurrent updates are applied one after the other thus none of them is lost.
+     *
+     * @return the published version
+     */
+    public Rtree update(Update update) {
+        synchronized (writeLock) {
+            merge();
+            Rtree next = update.apply(current);
+            next.freeze();
+            current = next;
+            return next;
+        }
+    }
+
+    /**
+     * Buffer shapes to be added to the tree
+     */
+    public void insert(Shape... shapes) {
+        synchronized (writeLock) {
+            for (Shape shape : shapes)
+                inserted.add(shape);
+            pending(shapes.length);
+        }
+    }
+
+    /**
+     * Buffer shapes to be removed from the tree, which are matched by identity
+     */
+    public void remove(Shape... shapes) {
+        synchronized (writeLock) {
+            Map<Shape, Boolean> shapesRemoved = new IdentityHashMap<Shape, Boolean>();
+            for (Shape shape : shapes) {
+                shapesRemoved.put(shape, Boolean.TRUE);
+                removed.put(shape, Boolean.TRUE);
+            }
+
+            /* Shapes inserted since the last rebuild are dropped from the buffer */
+            for (Iterator<Shape> it = inserted.iterator(); it.hasNext(); )
+                if (shapesRemoved.containsKey(it.next()))
+                    it.remove();
+            pending(shapes.length);
+        }
+    }
+
+    /**
+     * Publish a version holding all pending changes
+     *
+     * @return the published version
+     */
+    public Rtree flush() {
+        synchronized (writeLock) {
+            merge();
+            return current;
+        }
+    }
+
+    /**
+     * @return number of inserted or removed shapes not yet published
+     */
+    public int getNumPending() {
+        synchronized (writeLock) {
+            return numPending;
+        }
+    }
+
+    private void pending(int changes) {
+        numPending += changes;
+        if (numPending >= batchSize)
+            merge();
+    }
+
+    /**
+     * Rebuild the current version with pending changes and publish it
+     */
+    private void merge() {
+        if (numPending == 0)
+            return;
+
+        Rtree rtree = current;
+        Shape[] records = records(rtree);
+
+        /* Records of the current version in id order followed by inserted shapes */
+        Shape[] byId = new Shape[rtree.numRecords];
+        for (int i = 0; i < rtree.numRecords; ++i)
+            byId[rtree.recordIds[i]] = records[i];
+
+        List<Shape> kept = new ArrayList<Shape>(rtree.numRecords + inserted.size());
+        for (Shape shape : byId)
+            if (!removed.containsKey(shape))
+                kept.add(shape);
+        kept.addAll(inserted);
+
+        Shape[] shapes = kept.toArray(new Shape[kept.size()]);
+        Rtree next = rtree.getLoader() == Rtree.HILBERT_LOADER
+                ? Rtree.hilbertLoad(shapes, rtree.degree) : Rtree.bulkLoad(shapes, rtree.degree);
+        next.setLayout(rtree.getLayout());
+        next.freeze();
+
+        inserted.clear();
+        removed.clear();
+        numPending = 0;
+        current = next;
+    }
+
+    private static Shape[] records(Rtree rtree) {
+        if (rtree.numRecords > 0 && rtree.records == null)
+            throw new IllegalStateException("Records of a tree built from MBRs only cannot be updated");
+
+        return rtree.records == null ? new Shape[0] : rtree.records;
+    }
+}
@@ -0,0 +1,519 @@
+package com.swvl.geometry.ds.rtrees;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Bulk loader writing an {@link RtreeFile} from record MBRs that do not fit in memory. The
+ * records are packed in the order of the Hilbert curve passing through their centers, as
+ * done by {@link Rtree#hilbertLoad(com.swvl.geometry.shapes.Rectangle[], int)}, using an
+ * external merge sort:
+ * <ol>
+ * <li>the input is scanned once for the number of records and the bounds of their centers,</li>
+ * <li>runs of at most runSize records are sorted in memory and written to temporary files,</li>
+ * <li>runs are merged fanIn at a time until a single merge is left,</li>
+ * <li>the last merge streams records into the file and writes the leaves as they fill,</li>
+ * <li>every upper level is computed from a sequential scan of the level below it.</li>
+ * </ol>
+ * Heap usage is bounded by runSize records while sorting and by fanIn stream buffers while
+ * merging regardless of the number of records.
+ * <pre>
+ * Input records (40 bytes each, as written by DataOutputStream):
+ *   long id, double minX, double minY, double maxX, double maxY
+ * </pre>
+ * Records are written to the Rtree file as rectangles. Counts of internal nodes saturate at
+ * Integer.MAX_VALUE while their sizes (in bytes) always cover all of their records.
+ *
+ * @author Hatem Morgan
+ */
+public final class ExternalRtreeLoader {
+    static final int INPUT_RECORD_SIZE = 40;
+
+    /* Record of a sorted run: long key, long sequence number in input, long id and MBR */
+    static final int RUN_RECORD_SIZE = 56;
+
+    public static final int DEFAULT_RUN_SIZE = 1 << 20;
+    public static final int DEFAULT_FAN_IN = 64;
+
+    /* Size of a record in the Rtree file: id followed by an encoded rectangle */
+    private static final int RECORD_SIZE = 8 + ShapeCodec.sizeOf(ShapeCodec.RECTANGLE, 2);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final int degree;
+    private final int runSize;
+    private final int fanIn;
+    private final File tempDir;
+
+    private long numRecords;
+
+    /* Bounds of centers of all records */
+    private double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+    private double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+
+    private ExternalRtreeLoader(int degree, int runSize, int fanIn, File tempDir) {
+        if (degree < 2)
+            throw new IllegalArgumentException("Degree of Rtree must be greater than or equal 2");
+        if (runSize < 1 || fanIn < 2)
+            throw new IllegalArgumentException("Run size must be positive and fan-in at least 2");
+
+        this.degree = degree;
+        this.runSize = runSize;
+        this.fanIn = fanIn;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Build an Rtree file using the default run size, fan-in and temporary directory
+     *
+     * @param input  file of record MBRs
+     * @param output Rtree file which is overwritten if exists
+     * @param degree maximum number of children of a node and of records in a leaf
+     */
+    public static void load(File input, File output, int degree) throws IOException {
+        load(input, output, degree, DEFAULT_RUN_SIZE, DEFAULT_FAN_IN, null);
+    }
+
+    /**
+     * Build an Rtree file
+     *
+     * @param input   file of record MBRs
+     * @param output  Rtree file which is overwritten if exists
+     * @param degree  maximum number of children of a node and of records in a leaf
+     * @param runSize number of records sorted in memory at once
+     * @param fanIn   maximum number of runs merged at once
+     * @param tempDir directory of sorted runs or null for the default temporary directory
+     */
+    public static void load(File input, File output, int degree, int runSize, int fanIn,
+                            File tempDir) throws IOException {
+        new ExternalRtreeLoader(degree, runSize, fanIn, tempDir).load(input, output);
+    }
+
+    private void load(File input, File output) throws IOException {
+        scan(input);
+
+        List<File> runs = new ArrayList<File>();
+        try {
+            createRuns(input, runs);
+
+            while (runs.size() > fanIn) {
+                List<File> merged = new ArrayList<File>();
+                try {
+                    for (int i = 0; i < runs.size(); i += fanIn)
+                        merged.add(merge(runs.subList(i, Math.min(i + fanIn, runs.size()))));
+                } finally {
+                    delete(runs);
+                    runs = merged;
+                }
+            }
+
+            write(runs, output);
+        } finally {
+            delete(runs);
+        }
+    }
+
+    /**
+     * Count records and calculate bounds of their centers
+     */
+    private void scan(File input) throws IOException {
+        long length = input.length();
+        if (length % INPUT_RECORD_SIZE != 0)
+            throw new IOException("Input length is not a multiple of " + INPUT_RECORD_SIZE + " bytes");
+        numRecords = length / INPUT_RECORD_SIZE;
+
+        DataInputStream in = openInput(input);
+        try {
+            for (long r = 0; r < numRecords; ++r) {
+                in.readLong();
+                double rMinX = in.readDouble(), rMinY = in.readDouble();
+                double rMaxX = in.readDouble(), rMaxY = in.readDouble();
+                double x = (rMinX + rMaxX) / 2, y = (rMinY + rMaxY) / 2;
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Sort runs of records by the Hilbert keys of their centers. Ties are broken by the
+     * order of records in input thus packing is the same as in memory.
+     */
+    private void createRuns(File input, List<File> runs) throws IOException {
+        int capacity = (int) Math.max(1, Math.min(runSize, numRecords));
+        long[] order = new long[capacity];
+        long[] ids = new long[capacity];
+        double[] mbrs = new double[4 * capacity];
+
+        DataInputStream in = openInput(input);
+        try {
+            for (long start = 0; start < numRecords; start += capacity) {
+                int n = (int) Math.min(capacity, numRecords - start);
+                for (int i = 0; i < n; ++i) {
+                    ids[i] = in.readLong();
+                    for (int k = 0; k < 4; ++k)
+                        mbrs[4 * i + k] = in.readDouble();
+
+                    long key = HilbertCurve.key((mbrs[4 * i] + mbrs[4 * i + 2]) / 2,
+                            (mbrs[4 * i + 1] + mbrs[4 * i + 3]) / 2, minX, minY, maxX, maxY);
+                    order[i] = (key << 32 ^ Long.MIN_VALUE) | i;
+                }
+                Arrays.sort(order, 0, n);
+
+                File run = File.createTempFile("rtree-run", ".tmp", tempDir);
+                runs.add(run);
+                DataOutputStream out = openOutput(run);
+                try {
+                    for (int j = 0; j < n; ++j) {
+                        int i = (int) order[j];
+                        out.writeLong((order[j] ^ Long.MIN_VALUE) >>> 32);
+                        out.writeLong(start + i);
+                        out.writeLong(ids[i]);
+                        for (int k = 0; k < 4; ++k)
+                            out.writeDouble(mbrs[4 * i + k]);
+                    }
+                } finally {
+                    out.close();
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Merge sorted runs into a new run
+     */
+    private File merge(List<File> runs) throws IOException {
+        File merged = File.createTempFile("rtree-run", ".tmp", tempDir);
+        Merger merger = new Merger(runs);
+        try {
+            DataOutputStream out = openOutput(merged);
+            try {
+                for (Run run = merger.next(); run != null; run = merger.next())
+                    run.write(out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            merged.delete();
+            throw e;
+        } finally {
+            merger.close();
+        }
+        return merged;
+    }
+
+    /**
+     * Merge the remaining runs into records of the Rtree file and write its nodes from the
+     * leaves up
+     */
+    private void write(List<File> runs, File output) throws IOException {
+        int height = 1;
+        long numLeaves = 1;
+        while (numLeaves * degree < numRecords) {
+            numLeaves *= degree;
+            ++height;
+        }
+
+        long numNodes = (numLeaves * degree - 1) / (degree - 1);
+        if (numNodes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many nodes for degree " + degree);
+
+        long nodesOffset = RtreeFile.HEADER_SIZE;
+        long recordsOffset = nodesOffset + numNodes * RtreeFile.NODE_SIZE;
+
+        RandomAccessFile raf = new RandomAccessFile(output, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+
+            ByteBuffer header = ByteBuffer.allocate(RtreeFile.HEADER_SIZE);
+            header.putInt(RtreeFile.MAGIC);
+            header.putInt(RtreeFile.VERSION);
+            header.putInt(degree);
+            header.putInt(height);
+            header.putInt((int) numNodes);
+            header.putInt((int) numLeaves);
+            header.putLong(numRecords);
+            header.putLong(nodesOffset);
+            header.putLong(recordsOffset);
+            header.position(RtreeFile.HEADER_SIZE);
+            flush(channel, header, 0);
+
+            /* Levels are stored consecutively from root, each node covers consecutive nodes below */
+            long levelStart = numNodes - numLeaves;
+            writeLeaves(channel, runs, numLeaves, nodesOffset + levelStart * RtreeFile.NODE_SIZE,
+                    recordsOffset);
+
+            for (long levelSize = numLeaves / degree; levelSize > 0; levelSize /= degree) {
+                long childStart = levelStart;
+                levelStart -= levelSize;
+                writeLevel(channel, levelSize, nodesOffset + levelStart * RtreeFile.NODE_SIZE,
+                        nodesOffset + childStart * RtreeFile.NODE_SIZE);
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Stream merged records into the file while collecting them into leaves. Records are
+     * distributed over leaves as by {@link Rtree#leafStart(int)}.
+     */
+    private void writeLeaves(FileChannel channel, List<File> runs, long numLeaves, long nodePosition,
+                             long recordsOffset) throws IOException {
+        ByteBuffer nodes = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer records = ByteBuffer.allocate(BUFFER_SIZE);
+        long recordPosition = recordsOffset;
+        long perLeaf = numRecords / numLeaves, remainder = numRecords % numLeaves;
+        double[] mbr = new double[4];
+
+        Merger merger = new Merger(runs);
+        try {
+            long record = 0;
+            for (long leaf = 1; leaf <= numLeaves; ++leaf) {
+                /* leaf * numRecords / numLeaves without overflow */
+                long end = leaf * perLeaf + leaf * remainder / numLeaves;
+                long offset = recordsOffset + record * RECORD_SIZE;
+                int count = (int) (end - record);
+
+                empty(mbr);
+                for (; record < end; ++record) {
+                    Run run = merger.next();
+                    if (run == null)
+                        throw new EOFException("Sorted runs ended before record " + record);
+
+                    if (records.remaining() < RECORD_SIZE)
+                        recordPosition = flush(channel, records, recordPosition);
+                    records.putLong(run.id);
+                    records.put(ShapeCodec.RECTANGLE);
+                    for (int k = 0; k < 4; ++k)
+                        records.putDouble(run.mbr[k]);
+                    union(mbr, run.mbr);
+                }
+
+                if (nodes.remaining() < RtreeFile.NODE_SIZE)
+                    nodePosition = flush(channel, nodes, nodePosition);
+                putNode(nodes, mbr, offset, (long) count * RECORD_SIZE, count);
+            }
+        } finally {
+            merger.close();
+        }
+
+        flush(channel, records, recordPosition);
+        flush(channel, nodes, nodePosition);
+    }
+
+    /**
+     * Write a level of nodes by reading their children sequentially from the level below
+     */
+    private void writeLevel(FileChannel channel, long levelSize, long nodePosition, long childPosition)
+            throws IOException {
+        ByteBuffer nodes = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer children = ByteBuffer.allocate(degree * RtreeFile.NODE_SIZE);
+        double[] mbr = new double[4];
+        double[] childMbr = new double[4];
+
+        for (long i = 0; i < levelSize; ++i) {
+            children.clear();
+            while (children.hasRemaining()) {
+                int read = channel.read(children, childPosition);
+                if (read < 0)
+                    throw new EOFException("Unexpected end of Rtree file");
+                childPosition += read;
+            }
+            children.flip();
+
+            empty(mbr);
+            long offset = 0, size = 0, count = 0;
+            for (int j = 0; j < degree; ++j) {
+                for (int k = 0; k < 4; ++k)
+                    childMbr[k] = children.getDouble();
+                long childOffset = children.getLong();
+                size += children.getLong();
+                count += children.getInt();
+                children.getInt(); // padding
+
+                if (j == 0)
+                    offset = childOffset;
+                union(mbr, childMbr);
+            }
+
+            if (nodes.remaining() < RtreeFile.NODE_SIZE)
+                nodePosition = flush(channel, nodes, nodePosition);
+            putNode(nodes, mbr, offset, size, (int) Math.min(count, Integer.MAX_VALUE));
+        }
+
+        flush(channel, nodes, nodePosition);
+    }
+
+    /**
+     * Put a node in the layout of {@link RtreeFile} where an empty MBR is the inverted rectangle
+     */
+    private static void putNode(ByteBuffer buffer, double[] mbr, long offset, long size, int count) {
+        for (int k = 0; k < 4; ++k)
+            buffer.putDouble(mbr[k]);
+        buffer.putLong(offset);
+        buffer.putLong(size);
+        buffer.putInt(count);
+        buffer.putInt(0); // padding
+    }
+
+    private static void empty(double[] mbr) {
+        mbr[0] = mbr[1] = Double.MAX_VALUE;
+        mbr[2] = mbr[3] = -Double.MAX_VALUE;
+    }
+
+    private static void union(double[] mbr, double[] other) {
+        mbr[0] = Math.min(mbr[0], other[0]);
+        mbr[1] = Math.min(mbr[1], other[1]);
+        mbr[2] = Math.max(mbr[2], other[2]);
+        mbr[3] = Math.max(mbr[3], other[3]);
+    }
+
+    /**
+     * Write buffer at the given file position
+     *
+     * @return file position following the written bytes
+     */
+    private static long flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+        buffer.clear();
+        return position;
+    }
+
+    private static DataInputStream openInput(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+    }
+
+    private static DataOutputStream openOutput(File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+    }
+
+    private static void delete(List<File> files) {
+        for (File file : files)
+            file.delete();
+    }
+
+    /**
+     * Reader of a sorted run holding its current record
+     */
+    private static final class Run implements Comparable<Run> {
+        final DataInputStream in;
+        long remaining;
+
+        long key;
+        long sequence;
+        long id;
+        final double[] mbr = new double[4];
+
+        Run(File file) throws IOException {
+            in = openInput(file);
+            remaining = file.length() / RUN_RECORD_SIZE;
+        }
+
+        /**
+         * Read next record
+         *
+         * @return false if run is exhausted
+         */
+        boolean advance() throws IOException {
+            if (remaining == 0)
+                return false;
+
+            --remaining;
+            key = in.readLong();
+            sequence = in.readLong();
+            id = in.readLong();
+            for (int k = 0; k < 4; ++k)
+                mbr[k] = in.readDouble();
+            return true;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(key);
+            out.writeLong(sequence);
+            out.writeLong(id);
+            for (int k = 0; k < 4; ++k)
+                out.writeDouble(mbr[k]);
+        }
+
+        @Override
+        public int compareTo(Run run) {
+            if (key != run.key)
+                return key < run.key ? -1 : 1;
+            if (sequence != run.sequence)
+                return sequence < run.sequence ? -1 : 1;
+            return 0;
+        }
+    }
+
+    /**
+     * K-way merge of sorted runs using a priority queue of their current records
+     */
+    private static final class Merger {
+        private final PriorityQueue<Run> queue = new PriorityQueue<Run>();
+
+        /* Run whose record was returned last, advanced on the next call */
+        private Run last;
+
+        Merger(List<File> files) throws IOException {
+            try {
+                for (File file : files) {
+                    Run run = new Run(file);
+                    if (run.advance())
+                        queue.add(run);
+                    else
+                        run.in.close();
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return run holding the smallest record which is valid until the next call or null
+         * if all runs are exhausted
+         */
+        Run next() throws IOException {
+            if (last != null) {
+                if (last.advance())
+                    queue.add(last);
+                else
+                    last.in.close();
+            }
+
+            last = queue.poll();
+            return last;
+        }
+
+        void close() throws IOException {
+            if (last != null)
+                last.in.close();
+            for (Run run : queue)
+                run.in.close();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Rectangle;
+import com.swvl.geometry.shapes.Shape;
+
+/**
+ * Struct-of-arrays layout of an {@link Rtree}. Every node field is kept in a primitive array
+ * indexed by the node's index in the tree array, thus a node costs no object headers nor
+ * pointer chasing and the MBRs of siblings, which are adjacent in the tree array, are
+ * tested by scanning consecutive array cells.
+ * <p>
+ * Offsets and counts are the same as the source tree, thus records are accessed through
+ * the source tree.
+ *
+ * @author Hatem Morgan
+ */
+public class FlatRtree {
+
+    protected final int degree;
+
+    protected final int height;
+
+    protected final int numNodes;
+
+    protected final int numLeaves;
+
+    protected final int numRecords;
+
+    /* Node MBRs; empty nodes are stored as inverted rectangles that intersect nothing */
+    protected final double[] minX;
+    protected final double[] minY;
+    protected final double[] maxX;
+    protected final double[] maxY;
+
+    protected final long[] offset;
+    protected final long[] size;
+    protected final int[] count;
+
+    /**
+     * Copy the nodes of a packed tree into primitive arrays
+     */
+    public FlatRtree(Rtree rtree) {
+        this.degree = rtree.degree;
+        this.height = rtree.height;
+        this.numNodes = rtree.numNodes;
+        this.numLeaves = rtree.numLeaves;
+        this.numRecords = rtree.numRecords;
+
+        int length = numNodes + 1; // 1-based indexing
+        minX = new double[length];
+        minY = new double[length];
+        maxX = new double[length];
+        maxY = new double[length];
+        offset = new long[length];
+        size = new long[length];
+        count = new int[length];
+
+        for (int i = 1; i <= numNodes; ++i) {
+            Node node = rtree.node(i);
+            Rectangle mbr = node.mbr;
+            minX[i] = mbr == null ? Double.MAX_VALUE : mbr.minPoint.x;
+            minY[i] = mbr == null ? Double.MAX_VALUE : mbr.minPoint.y;
+            maxX[i] = mbr == null ? -Double.MAX_VALUE : mbr.maxPoint.x;
+            maxY[i] = mbr == null ? -Double.MAX_VALUE : mbr.maxPoint.y;
+            offset[i] = node.offset;
+            size[i] = node.size;
+            count[i] = node.count;
+        }
+    }
+
+    /**
+     * Window query passing every leaf whose MBR intersects the query rectangle to the
+     * visitor. The traversal does not allocate any objects.
+     */
+    public void search(Rectangle query, LeafVisitor visitor) {
+        double qMinX = query.minPoint.x - Shape.EPS;
+        double qMinY = query.minPoint.y - Shape.EPS;
+        double qMaxX = query.maxPoint.x + Shape.EPS;
+        double qMaxY = query.maxPoint.y + Shape.EPS;
+
+        if (numRecords == 0 || !intersects(1, qMinX, qMinY, qMaxX, qMaxY))
+            return;
+
+        search(1, numNodes - numLeaves + 1, qMinX, qMinY, qMaxX, qMaxY, visitor);
+    }
+
+    /**
+     * Visit subtree of a node whose MBR is known to intersect the (EPS expanded) window
+     */
+    private void search(int i, int firstLeaf, double qMinX, double qMinY, double qMaxX, double qMaxY,
+                        LeafVisitor visitor) {
+        if (i >= firstLeaf) {
+            visitor.visit(offset[i], size[i], count[i]);
+            return;
+        }
+
+        int first = i * degree + 2 - degree;
+        int last = first + degree;
+        for (int c = first; c < last; ++c)
+            if (intersects(c, qMinX, qMinY, qMaxX, qMaxY))
+                search(c, firstLeaf, qMinX, qMinY, qMaxX, qMaxY, visitor);
+    }
+
+    private boolean intersects(int i, double qMinX, double qMinY, double qMaxX, double qMaxY) {
+        return maxX[i] > qMinX && maxY[i] > qMinY && minX[i] < qMaxX && minY[i] < qMaxY;
+    }
+
+    public int getDegree() {
+        return degree;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    public int getNumRecords() {
+        return numRecords;
+    }
+}
@@ -0,0 +1,66 @@
+package com.swvl.geometry.ds.rtrees;
+
+/**
+ * Hilbert space-filling curve over a square grid of 2^ORDER x 2^ORDER cells. Points close
+ * along the curve are close in space, thus sorting records by their Hilbert keys groups
+ * them into compact nodes.
+ *
+ * @author Hatem Morgan
+ */
+public final class HilbertCurve {
+    /* Number of bits per dimension; keys fit in 2 * ORDER bits */
+    public static final int ORDER = 16;
+
+    private static final int SIDE = 1 << ORDER;
+
+    private HilbertCurve() {
+    }
+
+    /**
+     * Hilbert key of a point after scaling the given bounds to the grid of the curve
+     *
+     * @return key in [0, 2^(2 * ORDER))
+     */
+    public static long key(double x, double y, double minX, double minY, double maxX, double maxY) {
+        return index(scale(x, minX, maxX), scale(y, minY, maxY));
+    }
+
+    /**
+     * Position of cell (x, y) along the curve where 0 <= x, y < 2^ORDER
+     */
+    public static long index(int x, int y) {
+        long d = 0;
+        for (int s = SIDE >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+
+            /* Rotate quadrant so that the curve of the sub-square starts at its origin */
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = SIDE - 1 - x;
+                    y = SIDE - 1 - y;
+                }
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Map a coordinate in [min, max] to a cell of the grid
+     */
+    static int scale(double v, double min, double max) {
+        if (!(max - min > 0))
+            return 0;
+
+        double cell = (v - min) / (max - min) * (SIDE - 1);
+        if (cell <= 0)
+            return 0;
+        if (cell >= SIDE - 1)
+            return SIDE - 1;
+        return (int) cell;
+    }
+}
@@ -0,0 +1,18 @@
+package com.swvl.geometry.ds.rtrees;
+
+/**
+ * Callback receiving pairs of records found by a spatial join of two Rtrees. Parallel joins
+ * call it from many threads at the same time thus it must be thread-safe.
+ *
+ * @author Hatem Morgan
+ */
+public interface JoinVisitor {
+
+    /**
+     * Visit a pair of records whose MBRs intersect
+     *
+     * @param record1 index of record (in packing order) of the first tree
+     * @param record2 index of record (in packing order) of the second tree
+     */
+    void visit(int record1, int record2);
+}
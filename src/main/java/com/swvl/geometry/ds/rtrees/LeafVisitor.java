@@ -0,0 +1,19 @@
+package com.swvl.geometry.ds.rtrees;
+
+/**
+ * Callback receiving leaves of an Rtree matched by a query. Leaves are passed as record
+ * ranges so that queries do not allocate result lists.
+ *
+ * @author Hatem Morgan
+ */
+public interface LeafVisitor {
+
+    /**
+     * Visit the records of a matching leaf
+     *
+     * @param offset offset of first record represented by the leaf (inclusive)
+     * @param size   size of records represented by the leaf starting from offset
+     * @param count  number of records covered by the leaf
+     */
+    void visit(long offset, long size, int count);
+}
@@ -0,0 +1,235 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Rectangle;
+import com.swvl.geometry.shapes.Shape;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only Rtree answering queries directly from a memory-mapped file written by
+ * {@link RtreeFile}. Nothing but the header is loaded on the heap thus opening is constant
+ * time and pages are brought in by the operating system on demand.
+ * <p>
+ * A single mapping cannot exceed 2 GB, thus the file is mapped in chunks. Every chunk
+ * overlaps the next one by CHUNK_OVERLAP bytes so that fixed size values never straddle
+ * two mappings; only records larger than the overlap are copied when they cross a chunk.
+ *
+ * @author Hatem Morgan
+ */
+public class MappedRtree implements Closeable {
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_OVERLAP = 1 << 20;
+
+    private final RandomAccessFile file;
+
+    private final MappedByteBuffer[] chunks;
+
+    protected final int degree;
+
+    protected final int height;
+
+    protected final int numNodes;
+
+    protected final int numLeaves;
+
+    protected final long numRecords;
+
+    protected final long nodesOffset;
+
+    protected final long recordsOffset;
+
+    /* Slots of nodes in van Emde Boas order (null when nodes are stored in breadth-first order) */
+    private final VebLayout veb;
+
+    private MappedRtree(RandomAccessFile file) throws IOException {
+        this.file = file;
+
+        FileChannel channel = file.getChannel();
+        long length = channel.size();
+        int numChunks = (int) ((length + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+        chunks = new MappedByteBuffer[Math.max(1, numChunks)];
+        for (int i = 0; i < chunks.length; ++i) {
+            long start = (long) i << CHUNK_BITS;
+            long size = Math.min(CHUNK_SIZE + CHUNK_OVERLAP, length - start);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, size));
+        }
+
+        if (length < RtreeFile.HEADER_SIZE || getInt(0) != RtreeFile.MAGIC)
+            throw new IOException("Not an Rtree file");
+        if (getInt(4) != RtreeFile.VERSION)
+            throw new IOException("Unsupported Rtree file version " + getInt(4));
+
+        degree = getInt(8);
+        height = getInt(12);
+        numNodes = getInt(16);
+        numLeaves = getInt(20);
+        numRecords = getLong(24);
+        nodesOffset = getLong(32);
+        recordsOffset = getLong(40);
+        veb = getInt(48) == Rtree.VAN_EMDE_BOAS ? new VebLayout(height, degree) : null;
+    }
+
+    /**
+     * Memory-map an Rtree file
+     */
+    public static MappedRtree open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return new MappedRtree(raf);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Window query passing every leaf whose MBR intersects the query rectangle to the
+     * visitor. Offsets and sizes passed to the visitor are file positions and byte counts
+     * of records which can be read by {@link #getRecord(long)}.
+     */
+    public void search(Rectangle query, LeafVisitor visitor) {
+        if (numRecords == 0)
+            return;
+
+        search(1, numNodes - numLeaves + 1, query.minPoint.x, query.minPoint.y,
+                query.maxPoint.x, query.maxPoint.y, visitor);
+    }
+
+    private void search(int i, int firstLeaf, double minX, double minY, double maxX, double maxY,
+                        LeafVisitor visitor) {
+        long pos = nodePosition(i);
+        if (!(getDouble(pos + 16) + Shape.EPS > minX
+                && getDouble(pos + 24) + Shape.EPS > minY
+                && maxX + Shape.EPS > getDouble(pos)
+                && maxY + Shape.EPS > getDouble(pos + 8)))
+            return;
+
+        if (i >= firstLeaf) {
+            visitor.visit(getLong(pos + 32), getLong(pos + 40), getInt(pos + 48));
+            return;
+        }
+
+        int child = i * degree + 2 - degree;
+        for (int j = 0; j < degree; ++j)
+            search(child + j, firstLeaf, minX, minY, maxX, maxY, visitor);
+    }
+
+    /**
+     * Read node at breadth-first index i (root is at 1) where offset and size are positions
+     * in file
+     */
+    public Node getNode(int i) {
+        long pos = nodePosition(i);
+        int count = getInt(pos + 48);
+        Rectangle mbr = count == 0 ? null : new Rectangle(getDouble(pos), getDouble(pos + 8),
+                getDouble(pos + 16), getDouble(pos + 24));
+        return new Node(getLong(pos + 32), getLong(pos + 40), count, mbr);
+    }
+
+    /**
+     * @param position file position of a record
+     * @return id of record which is its index in the array given to the bulk loader
+     */
+    public long getRecordId(long position) {
+        return getLong(position);
+    }
+
+    /**
+     * @param position file position of a record
+     */
+    public Shape getRecord(long position) {
+        int length = recordLength(position) - 8;
+        long start = position + 8;
+
+        ByteBuffer chunk = chunks[(int) (start >>> CHUNK_BITS)];
+        int off = (int) (start & CHUNK_MASK);
+        if (off + length <= chunk.limit()) {
+            ByteBuffer buffer = chunk.duplicate();
+            buffer.position(off);
+            return ShapeCodec.read(buffer);
+        }
+
+        /* Record crosses chunks */
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; ++i)
+            buffer.put(getByte(start + i));
+        buffer.flip();
+        return ShapeCodec.read(buffer);
+    }
+
+    /**
+     * @param position file position of a record
+     * @return file position of the record following it
+     */
+    public long nextRecord(long position) {
+        return position + recordLength(position);
+    }
+
+    /**
+     * Number of bytes of record including its id
+     */
+    private int recordLength(long position) {
+        byte type = getByte(position + 8);
+        if (type == ShapeCodec.POLYGON)
+            return 8 + ShapeCodec.sizeOf(type, getInt(position + 9));
+        return 8 + ShapeCodec.sizeOf(type, type == ShapeCodec.POINT ? 1 : 2);
+    }
+
+    public int getDegree() {
+        return degree;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    public int getNumLeaves() {
+        return numLeaves;
+    }
+
+    public long getNumRecords() {
+        return numRecords;
+    }
+
+    public int getLayout() {
+        return veb == null ? Rtree.BREADTH_FIRST : Rtree.VAN_EMDE_BOAS;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private long nodePosition(int i) {
+        int slot = veb == null ? i : veb.slot(i);
+        return nodesOffset + (long) (slot - 1) * RtreeFile.NODE_SIZE;
+    }
+
+    private byte getByte(long pos) {
+        return chunks[(int) (pos >>> CHUNK_BITS)].get((int) (pos & CHUNK_MASK));
+    }
+
+    private int getInt(long pos) {
+        return chunks[(int) (pos >>> CHUNK_BITS)].getInt((int) (pos & CHUNK_MASK));
+    }
+
+    private long getLong(long pos) {
+        return chunks[(int) (pos >>> CHUNK_BITS)].getLong((int) (pos & CHUNK_MASK));
+    }
+
+    private double getDouble(long pos) {
+        return chunks[(int) (pos >>> CHUNK_BITS)].getDouble((int) (pos & CHUNK_MASK));
+    }
+}
@@ -0,0 +1,148 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Point;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Incremental best-first nearest-neighbour search over an {@link Rtree} returning indices of
+ * records (in packing order) in increasing distance from a query point. Nodes and records
+ * are kept in a priority queue keyed by the minimum distance between the query point and
+ * their MBRs, and the queue is expanded only as far as needed to report the next record,
+ * thus stopping early costs only the records pulled so far.
+ * <p>
+ * A record popped from the queue is refined using
+ * {@link com.swvl.geometry.shapes.Shape#distanceTo(Point)} and pushed back with its exact
+ * distance, thus it is reported only when no unexplored node or record can be closer. Trees
+ * built from MBRs only use the distance to record MBRs. An OperationNotSupportedException
+ * thrown by refinement is rethrown by {@link #next()} as the cause of an
+ * UnsupportedOperationException.
+ *
+ * @author Hatem Morgan
+ */
+public final class NearestNeighbourIterator implements Iterator<Integer> {
+    private final Rtree rtree;
+    private final Point point;
+    private final double x, y;
+    private final int firstLeaf;
+    private final PriorityQueue<Entry> queue = new PriorityQueue<Entry>();
+
+    /* Statistics of the enclosing query or null */
+    private final QueryStats stats;
+
+    /* Exact distance of the last returned record */
+    private double distance = Double.NaN;
+
+    NearestNeighbourIterator(Rtree rtree, Point point, QueryStats stats) {
+        this.rtree = rtree;
+        this.point = new Point(point.x, point.y);
+        this.x = point.x;
+        this.y = point.y;
+        this.firstLeaf = rtree.firstLeaf();
+        this.stats = stats;
+
+        if (rtree.numRecords > 0)
+            queue.add(new Entry(1, Entry.NODE, Rtree.minDistance(rtree.node(1).mbr, x, y)));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !queue.isEmpty();
+    }
+
+    @Override
+    public Integer next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        try {
+            return nextRecord();
+        } catch (OperationNotSupportedException e) {
+            UnsupportedOperationException exception = new UnsupportedOperationException(e.getMessage());
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    /**
+     * Expand the queue until a record with exact distance is at its head
+     *
+     * @return index of the nearest record not returned yet
+     */
+    int nextRecord() throws OperationNotSupportedException {
+        while (true) {
+            Entry entry = queue.poll();
+
+            if (entry.type == Entry.RECORD) {
+                if (QueryStats.ENABLED && stats != null)
+                    ++stats.hits;
+                distance = entry.distance;
+                return entry.index;
+            } else if (entry.type == Entry.CANDIDATE) {
+                if (QueryStats.ENABLED && stats != null)
+                    ++stats.candidates;
+                entry.type = Entry.RECORD;
+                if (rtree.records != null)
+                    entry.distance = rtree.records[entry.index].distanceTo(point);
+                queue.add(entry);
+            } else if (entry.index >= firstLeaf) {
+                if (QueryStats.ENABLED && stats != null)
+                    ++stats.leaves;
+                Node leaf = rtree.node(entry.index);
+                for (int r = (int) leaf.offset; r < leaf.offset + leaf.count; ++r)
+                    queue.add(new Entry(r, Entry.CANDIDATE, Rtree.minDistance(rtree.recordMbrs[r], x, y)));
+            } else {
+                if (QueryStats.ENABLED && stats != null)
+                    ++stats.internalNodes;
+                int child = entry.index * rtree.degree + rtree.range[0];
+                for (int j = 0; j < rtree.degree; ++j)
+                    queue.add(new Entry(child + j, Entry.NODE, Rtree.minDistance(rtree.node(child + j).mbr, x, y)));
+            }
+        }
+    }
+
+    /**
+     * @return distance between the query point and the last returned record
+     */
+    public double distance() {
+        return distance;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Records cannot be removed from Rtree");
+    }
+
+    /**
+     * Entry of priority queue which is either a node, a record whose distance is a lower
+     * bound from its MBR (candidate) or a record with exact distance
+     */
+    private static class Entry implements Comparable<Entry> {
+        static final int NODE = 0;
+        static final int CANDIDATE = 1;
+        static final int RECORD = 2;
+
+        int index;
+        int type;
+        double distance;
+
+        Entry(int index, int type, double distance) {
+            this.index = index;
+            this.type = type;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(Entry entry) {
+            int cmp = Double.compare(this.distance, entry.distance);
+            if (cmp != 0)
+                return cmp;
+
+            /* Report exact records before expanding entries at the same distance */
+            return entry.type - this.type;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.swvl.geometry.ds.rtrees;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Bounded cache of fixed size pages of a file read through positional {@link FileChannel}
+ * reads. Pages are evicted by the CLOCK policy: every frame has a reference bit set on
+ * access, and the clock hand sweeps the frames clearing reference bits until it finds an
+ * unreferenced frame to reuse. Pinned pages are never evicted.
+ * <p>
+ * Resident pages are found through an open-addressing hash table of primitive keys, thus a
+ * hit does not allocate any objects.
+ * <p>
+ * The cache lock is held only to find or reserve the frame of a page. A page is read from
+ * the file and copied out of its frame outside the lock, while the frame is held by a use
+ * count so that it is not evicted; threads asking for a page being loaded wait until the
+ * load completes. Reads of different pages, and hits on pages already loaded, thus proceed
+ * in parallel.
+ *
+ * @author Hatem Morgan
+ */
+public final class PageCache {
+    private static final long EMPTY = -1;
+
+    private final FileChannel channel;
+    private final int pageBits;
+    private final int pageSize;
+
+    /*
+     * Frames holding pages with their page index, reference bit, pin flag, number of threads
+     * using the frame and whether its page is being read from the file
+     */
+    private final ByteBuffer[] frames;
+    private final long[] framePages;
+    private final boolean[] referenced;
+    private final boolean[] pinned;
+    private final int[] users;
+    private final boolean[] loading;
+    private int numFrames;
+    private int numPinned;
+    private int hand;
+
+    /* Number of threads waiting for a load to complete or for a frame to be released */
+    private int waiting;
+
+    /* Hash table from page index to frame with linear probing */
+    private final long[] keys;
+    private final int[] values;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param channel  file to be cached
+     * @param pageSize size of a page which must be a power of 2
+     * @param capacity maximum number of bytes held by the cache
+     */
+    public PageCache(FileChannel channel, int pageSize, long capacity) {
+        if (pageSize <= 0 || (pageSize & (pageSize - 1)) != 0)
+            throw new IllegalArgumentException("Page size must be a power of 2");
+        long maxFrames = capacity / pageSize;
+        if (maxFrames < 1 || maxFrames > Integer.MAX_VALUE / 2)
+            throw new IllegalArgumentException("Capacity must hold between one page and 2^30 pages");
+
+        this.channel = channel;
+        this.pageSize = pageSize;
+        this.pageBits = Integer.numberOfTrailingZeros(pageSize);
+
+        frames = new ByteBuffer[(int) maxFrames];
+        framePages = new long[frames.length];
+        referenced = new boolean[frames.length];
+        pinned = new boolean[frames.length];
+        users = new int[frames.length];
+        loading = new boolean[frames.length];
+
+        keys = new long[Integer.highestOneBit(frames.length * 2 - 1) << 1];
+        values = new int[keys.length];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Copy bytes starting at a file position into dst until dst has no remaining bytes
+     */
+    public void read(long position, ByteBuffer dst) throws IOException {
+        while (dst.hasRemaining()) {
+            int frame = acquire(position >>> pageBits);
+            try {
+                int offset = (int) (position & (pageSize - 1));
+                int length = Math.min(dst.remaining(), pageSize - offset);
+                dst.put(frames[frame].array(), offset, length);
+                position += length;
+            } finally {
+                release(frame);
+            }
+        }
+    }
+
+    /**
+     * Load the pages covering a range of the file and keep them resident
+     *
+     * @throws IllegalStateException if pinning leaves no frame for unpinned pages
+     */
+    public void pin(long position, long length) throws IOException {
+        for (long page = position >>> pageBits; page <= (position + length - 1) >>> pageBits; ++page) {
+            int frame = acquire(page);
+            try {
+                synchronized (this) {
+                    if (pinned[frame])
+                        continue;
+
+                    if (numPinned + 1 >= frames.length)
+                        throw new IllegalStateException("Pinned pages exceed capacity of the cache");
+                    pinned[frame] = true;
+                    ++numPinned;
+                }
+            } finally {
+                release(frame);
+            }
+        }
+    }
+
+    /**
+     * Find the frame holding a page and hold it until {@link #release(int)}, loading the
+     * page outside the lock on a miss
+     */
+    private int acquire(long page) throws IOException {
+        int frame;
+        synchronized (this) {
+            while (true) {
+                frame = find(page);
+                if (frame >= 0) {
+                    ++users[frame];
+                    if (!loading[frame]) {
+                        ++hits;
+                        referenced[frame] = true;
+                        return frame;
+                    }
+
+                    /* Page is being loaded by another thread, held meanwhile so it stays put */
+                    try {
+                        awaitChange();
+                    } finally {
+                        release(frame);
+                    }
+                    continue;
+                }
+
+                if (numFrames < frames.length) {
+                    frame = numFrames++;
+                } else {
+                    frame = victim();
+                    if (frame < 0) {
+                        /* Every unpinned frame is in use */
+                        awaitChange();
+                        continue;
+                    }
+                    if (framePages[frame] != EMPTY) {
+                        remove(framePages[frame]);
+                        ++evictions;
+                    }
+                }
+
+                ++misses;
+                framePages[frame] = page;
+                referenced[frame] = true;
+                loading[frame] = true;
+                users[frame] = 1;
+                put(page, frame);
+                break;
+            }
+        }
+
+        boolean loaded = false;
+        try {
+            if (frames[frame] == null)
+                frames[frame] = ByteBuffer.allocate(pageSize);
+            ByteBuffer buffer = frames[frame];
+            buffer.clear();
+            long start = page << pageBits;
+            while (buffer.hasRemaining())
+                if (channel.read(buffer, start + buffer.position()) < 0)
+                    break;
+            loaded = true;
+        } finally {
+            synchronized (this) {
+                loading[frame] = false;
+                if (!loaded) {
+                    /* Failed page is dropped, so threads waiting for it load it again */
+                    remove(page);
+                    framePages[frame] = EMPTY;
+                    referenced[frame] = false;
+                    --users[frame];
+                }
+                if (waiting > 0)
+                    notifyAll();
+            }
+        }
+        return frame;
+    }
+
+    private synchronized void release(int frame) {
+        if (--users[frame] == 0 && waiting > 0)
+            notifyAll();
+    }
+
+    /**
+     * Wait under the lock until a load completes or a frame is released
+     */
+    private void awaitChange() throws IOException {
+        ++waiting;
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a page");
+        } finally {
+            --waiting;
+        }
+    }
+
+    /**
+     * Advance the clock hand to the first unpinned and unused frame whose reference bit is
+     * clear, clearing the bits it passes
+     *
+     * @return the frame or -1 if every unpinned frame is in use
+     */
+    private int victim() {
+        for (int k = 0; k < 2 * frames.length; ++k) {
+            int frame = hand;
+            hand = hand + 1 == frames.length ? 0 : hand + 1;
+
+            if (pinned[frame] || users[frame] > 0)
+                continue;
+            if (!referenced[frame])
+                return frame;
+            referenced[frame] = false;
+        }
+        return -1;
+    }
+
+    private int slotOf(long page) {
+        long h = page * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (keys.length - 1);
+    }
+
+    private int find(long page) {
+        for (int slot = slotOf(page); keys[slot] != EMPTY; slot = (slot + 1) & (keys.length - 1))
+            if (keys[slot] == page)
+                return values[slot];
+        return -1;
+    }
+
+    private void put(long page, int frame) {
+        int slot = slotOf(page);
+        while (keys[slot] != EMPTY)
+            slot = (slot + 1) & (keys.length - 1);
+        keys[slot] = page;
+        values[slot] = frame;
+    }
+
+    /**
+     * Remove a page and shift back the following entries of its probe sequence
+     */
+    private void remove(long page) {
+        int mask = keys.length - 1;
+        int hole = slotOf(page);
+        while (keys[hole] != page)
+            hole = (hole + 1) & mask;
+        keys[hole] = EMPTY;
+
+        for (int slot = (hole + 1) & mask; keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int home = slotOf(keys[slot]);
+
+            /* Entry moves back unless its home lies cyclically in (hole, slot] */
+            boolean stays = hole <= slot ? hole < home && home <= slot : hole < home || home <= slot;
+            if (!stays) {
+                keys[hole] = keys[slot];
+                values[hole] = values[slot];
+                keys[slot] = EMPTY;
+                hole = slot;
+            }
+        }
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return maximum number of resident pages
+     */
+    public int getCapacity() {
+        return frames.length;
+    }
+
+    public synchronized int getNumPinned() {
+        return numPinned;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Clear hit, miss and eviction counters
+     */
+    public synchronized void resetCounters() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PageCache{" +
+                "pageSize=" + pageSize +
+                ", capacity=" + frames.length +
+                ", pinned=" + numPinned +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+}
@@ -0,0 +1,167 @@
+package com.swvl.geometry.ds.rtrees;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Per-query statistics of Rtree searches: internal nodes visited, leaves touched, candidate
+ * records and exact refine matches. Every thread counts into its own instance and, at the end
+ * of every query, adds the counters to power-of-two histograms that can be exported for all
+ * threads by {@link #histogram(int)}. Histograms of threads that have terminated are folded
+ * into global totals and their instances dropped, thus short-lived threads do not accumulate.
+ * <p>
+ * Statistics are collected only if the system property {@code com.swvl.geometry.rtree.stats}
+ * is true at class loading. Otherwise {@link #ENABLED} is a false constant and the JIT compiler
+ * removes all counting code from queries.
+ *
+ * @author Hatem Morgan
+ */
+public final class QueryStats {
+    public static final boolean ENABLED = Boolean.getBoolean("com.swvl.geometry.rtree.stats");
+
+    /* Metrics */
+    public static final int INTERNAL_NODES = 0;
+    public static final int LEAVES = 1;
+    public static final int CANDIDATES = 2;
+    public static final int HITS = 3;
+
+    /* Bucket i counts queries whose value v satisfies 2^(i-1) <= v < 2^i (bucket 0 counts zeros) */
+    public static final int NUM_BUCKETS = 33;
+
+    /* Statistics of live threads and merged histograms of terminated threads, guarded by ALL */
+    private static final List<QueryStats> ALL = new ArrayList<QueryStats>();
+    private static final long[][] RETIRED = new long[4][NUM_BUCKETS];
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<QueryStats>() {
+        @Override
+        protected QueryStats initialValue() {
+            QueryStats stats = new QueryStats();
+            synchronized (ALL) {
+                retireDeadThreads();
+                ALL.add(stats);
+            }
+            return stats;
+        }
+    };
+
+    /* Counters of the current (or last) query of the thread */
+    public int internalNodes;
+    public int leaves;
+    public int candidates;
+    public int hits;
+
+    private final long[][] histograms = new long[4][NUM_BUCKETS];
+
+    /* Thread counting into this instance */
+    private final WeakReference<Thread> owner = new WeakReference<Thread>(Thread.currentThread());
+
+    private QueryStats() {
+    }
+
+    /**
+     * Fold histograms of terminated threads into the retired totals, where a terminated
+     * thread no longer updates them
+     */
+    private static void retireDeadThreads() {
+        for (Iterator<QueryStats> it = ALL.iterator(); it.hasNext(); ) {
+            QueryStats stats = it.next();
+            Thread thread = stats.owner.get();
+            if (thread != null && thread.isAlive())
+                continue;
+
+            for (int metric = 0; metric < RETIRED.length; ++metric)
+                for (int i = 0; i < NUM_BUCKETS; ++i)
+                    RETIRED[metric][i] += stats.histograms[metric][i];
+            it.remove();
+        }
+    }
+
+    /**
+     * @return number of threads whose statistics are kept apart from the retired totals
+     */
+    static int numThreads() {
+        synchronized (ALL) {
+            retireDeadThreads();
+            return ALL.size();
+        }
+    }
+
+    /**
+     * Reset counters of the calling thread for a new query
+     *
+     * @return statistics of the calling thread
+     */
+    static QueryStats begin() {
+        QueryStats stats = CURRENT.get();
+        stats.internalNodes = 0;
+        stats.leaves = 0;
+        stats.candidates = 0;
+        stats.hits = 0;
+        return stats;
+    }
+
+    /**
+     * Add counters of the finished query to histograms
+     */
+    void end() {
+        add(INTERNAL_NODES, internalNodes);
+        add(LEAVES, leaves);
+        add(CANDIDATES, candidates);
+        add(HITS, hits);
+    }
+
+    private void add(int metric, int value) {
+        ++histograms[metric][32 - Integer.numberOfLeadingZeros(value)];
+    }
+
+    /**
+     * @return statistics of the last query of the calling thread
+     */
+    public static QueryStats last() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Merge the histograms of a metric over all threads. Counters are read without locking
+     * thus queries running at the same time may or may not be included.
+     *
+     * @param metric one of INTERNAL_NODES, LEAVES, CANDIDATES or HITS
+     * @return number of queries per bucket
+     */
+    public static long[] histogram(int metric) {
+        synchronized (ALL) {
+            retireDeadThreads();
+            long[] histogram = RETIRED[metric].clone();
+            for (QueryStats stats : ALL)
+                for (int i = 0; i < NUM_BUCKETS; ++i)
+                    histogram[i] += stats.histograms[metric][i];
+            return histogram;
+        }
+    }
+
+    /**
+     * Clear histograms of all threads
+     */
+    public static void reset() {
+        synchronized (ALL) {
+            for (long[] histogram : RETIRED)
+                Arrays.fill(histogram, 0);
+            for (QueryStats stats : ALL)
+                for (long[] histogram : stats.histograms)
+                    Arrays.fill(histogram, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "QueryStats{" +
+                "internalNodes=" + internalNodes +
+                ", leaves=" + leaves +
+                ", candidates=" + candidates +
+                ", hits=" + hits +
+                '}';
+    }
+}
@@ -0,0 +1,510 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Rectangle;
+import com.swvl.geometry.shapes.Shape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Dynamic R*-tree supporting insertion and deletion of records in O(log n). Unlike
+ * {@link Rtree}, nodes are linked objects so that the tree can grow and shrink without
+ * being rebuilt.
+ * <p>
+ * The R*-tree heuristics are used to keep the tree close to a bulk loaded one: the
+ * subtree is chosen by minimum overlap enlargement above leaves and minimum area
+ * enlargement elsewhere, overflowing nodes are first treated by reinserting their farthest
+ * entries once per level and insertion, and splits choose the axis with minimum margin then
+ * the distribution with minimum overlap.
+ * <p>
+ * Records are represented by {@link Node}s where offset is the record id and count is 1.
+ *
+ * @author Hatem Morgan
+ */
+public class RStarTree {
+
+    /* Fraction of entries reinserted on first overflow of a level */
+    private static final double REINSERT_FRACTION = 0.3;
+
+    /* Maximum number of entries in a node */
+    protected final int maxEntries;
+
+    /* Minimum number of entries in a node other than root */
+    protected final int minEntries;
+
+    protected RStarNode root;
+
+    /* Number of levels where leaves are at level 0 */
+    protected int height;
+
+    protected int numRecords;
+
+    /**
+     * Internal node or leaf of the tree. Entries of leaves are records and entries of
+     * internal nodes are nodes of the level below.
+     */
+    protected static class RStarNode extends Node {
+        /* Level of node where leaves are at level 0 */
+        int level;
+
+        RStarNode parent;
+
+        List<Node> entries;
+
+        RStarNode(int level, int capacity) {
+            this.level = level;
+            this.entries = new ArrayList<Node>(capacity + 1);
+        }
+
+        boolean isLeaf() {
+            return level == 0;
+        }
+
+        /**
+         * Recalculate mbr and count from entries
+         */
+        void recompute() {
+            count = 0;
+            mbr = null;
+            for (Node entry : entries) {
+                count += entry.count;
+                if (mbr == null)
+                    mbr = entry.mbr.clone();
+                else
+                    mbr.expand(entry.mbr);
+            }
+        }
+    }
+
+    public RStarTree() {
+        this(16);
+    }
+
+    /**
+     * @param maxEntries maximum number of entries in a node where the minimum is 40% of it
+     */
+    public RStarTree(int maxEntries) {
+        if (maxEntries < 4)
+            throw new IllegalArgumentException("Maximum entries of R*-tree must be greater than or equal 4");
+
+        this.maxEntries = maxEntries;
+        this.minEntries = Math.max(2, (int) Math.round(maxEntries * 0.4));
+        this.root = new RStarNode(0, maxEntries);
+        this.height = 1;
+    }
+
+    /**
+     * Insert a record given its shape
+     *
+     * @param shape record shape which is indexed by its MBR
+     * @param id    record id passed to visitors as the offset of the record
+     */
+    public void insert(Shape shape, long id) {
+        insert(shape.getMBR(), id);
+    }
+
+    /**
+     * Insert a record given its MBR
+     *
+     * @param mbr minimum bounding rectangle of the record
+     * @param id  record id passed to visitors as the offset of the record
+     */
+    public void insert(Rectangle mbr, long id) {
+        Node record = new Node(id, 1, 1, mbr.clone());
+        insert(record, 0, new boolean[height]);
+        ++numRecords;
+    }
+
+    /**
+     * Delete a record given its MBR and id
+     *
+     * @return true if the record was found and deleted
+     */
+    public boolean delete(Rectangle mbr, long id) {
+        RStarNode leaf = findLeaf(root, mbr, id);
+        if (leaf == null)
+            return false;
+
+        for (int i = 0; i < leaf.entries.size(); ++i) {
+            Node entry = leaf.entries.get(i);
+            if (entry.offset == id && entry.mbr.equals(mbr)) {
+                leaf.entries.remove(i);
+                break;
+            }
+        }
+
+        condense(leaf);
+        --numRecords;
+        return true;
+    }
+
+    /**
+     * Window query passing every record whose MBR intersects the query rectangle to the
+     * visitor as a single record range (offset = id, size = 1, count = 1)
+     */
+    public void search(Rectangle query, LeafVisitor visitor) {
+        if (numRecords == 0)
+            return;
+
+        search(root, query.minPoint.x, query.minPoint.y, query.maxPoint.x, query.maxPoint.y, visitor);
+    }
+
+    private void search(RStarNode node, double minX, double minY, double maxX, double maxY,
+                        LeafVisitor visitor) {
+        for (Node entry : node.entries) {
+            if (!Rtree.intersects(entry.mbr, minX, minY, maxX, maxY))
+                continue;
+
+            if (node.isLeaf())
+                visitor.visit(entry.offset, entry.size, entry.count);
+            else
+                search((RStarNode) entry, minX, minY, maxX, maxY, visitor);
+        }
+    }
+
+    public int getNumRecords() {
+        return numRecords;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return MBR of all records or null if the tree is empty
+     */
+    public Rectangle getMBR() {
+        return root.mbr;
+    }
+
+    /**
+     * Insert an entry into a node at the given level
+     *
+     * @param entry      record (level 0) or subtree (level = subtree level + 1)
+     * @param level      level of the node which will hold the entry
+     * @param reinserted levels already treated by forced reinsertion in this insertion
+     */
+    private void insert(Node entry, int level, boolean[] reinserted) {
+        RStarNode node = chooseSubtree(entry.mbr, level);
+        addEntry(node, entry);
+
+        while (node != null) {
+            if (node.entries.size() <= maxEntries) {
+                adjust(node);
+                return;
+            }
+
+            if (node != root && !reinserted[node.level]) {
+                reinserted[node.level] = true;
+                reinsert(node, reinserted);
+                return;
+            }
+
+            RStarNode sibling = split(node);
+
+            if (node == root) {
+                RStarNode newRoot = new RStarNode(node.level + 1, maxEntries);
+                addEntry(newRoot, node);
+                addEntry(newRoot, sibling);
+                newRoot.recompute();
+                root = newRoot;
+                ++height;
+                return;
+            }
+
+            RStarNode parent = node.parent;
+            addEntry(parent, sibling);
+            node = parent;
+        }
+    }
+
+    private static void addEntry(RStarNode node, Node entry) {
+        node.entries.add(entry);
+        if (entry instanceof RStarNode)
+            ((RStarNode) entry).parent = node;
+    }
+
+    /**
+     * Recalculate MBRs and counts from node up to the root
+     */
+    private static void adjust(RStarNode node) {
+        while (node != null) {
+            node.recompute();
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Descend from root to a node at the given level choosing the subtree that needs the
+     * minimum overlap enlargement (above leaves) or the minimum area enlargement
+     */
+    private RStarNode chooseSubtree(Rectangle mbr, int level) {
+        RStarNode node = root;
+
+        while (node.level > level) {
+            Node best = null;
+            double bestOverlap = Double.MAX_VALUE;
+            double bestEnlargement = Double.MAX_VALUE;
+            double bestArea = Double.MAX_VALUE;
+            boolean aboveLeaves = node.level == 1;
+
+            for (Node entry : node.entries) {
+                double area = area(entry.mbr);
+                double enlargement = unionArea(entry.mbr, mbr) - area;
+                double overlap = 0;
+
+                if (aboveLeaves) {
+                    for (Node other : node.entries)
+                        if (other != entry)
+                            overlap += unionOverlap(entry.mbr, mbr, other.mbr) - overlap(entry.mbr, other.mbr);
+                }
+
+                if (overlap < bestOverlap
+                        || (overlap == bestOverlap && enlargement < bestEnlargement)
+                        || (overlap == bestOverlap && enlargement == bestEnlargement && area < bestArea)) {
+                    best = entry;
+                    bestOverlap = overlap;
+                    bestEnlargement = enlargement;
+                    bestArea = area;
+                }
+            }
+
+            node = (RStarNode) best;
+        }
+
+        return node;
+    }
+
+    /**
+     * Remove the entries farthest from the center of an overflowing node and insert them
+     * again starting with the closest one
+     */
+    private void reinsert(RStarNode node, boolean[] reinserted) {
+        node.recompute();
+        final double cx = (node.mbr.minPoint.x + node.mbr.maxPoint.x) / 2;
+        final double cy = (node.mbr.minPoint.y + node.mbr.maxPoint.y) / 2;
+
+        Collections.sort(node.entries, new Comparator<Node>() {
+            @Override
+            public int compare(Node n1, Node n2) {
+                return Double.compare(centerDistance(n2.mbr, cx, cy), centerDistance(n1.mbr, cx, cy));
+            }
+        });
+
+        int p = Math.max(1, (int) (node.entries.size() * REINSERT_FRACTION));
+        List<Node> removed = new ArrayList<Node>(node.entries.subList(0, p));
+        node.entries.subList(0, p).clear();
+        adjust(node);
+
+        for (int i = removed.size() - 1; i >= 0; --i)
+            insert(removed.get(i), node.level, reinserted);
+    }
+
+    /**
+     * Split an overflowing node and return the new sibling holding the second group
+     */
+    private RStarNode split(RStarNode node) {
+        Node[] entries = node.entries.toArray(new Node[node.entries.size()]);
+
+        int axis = chooseSplitAxis(entries);
+
+        /* Choose distribution along the chosen axis with minimum overlap then minimum area */
+        Node[] best = null;
+        int bestK = -1;
+        double bestOverlap = Double.MAX_VALUE;
+        double bestArea = Double.MAX_VALUE;
+
+        for (int sort = 0; sort < 2; ++sort) {
+            Node[] sorted = entries.clone();
+            Arrays.sort(sorted, comparator(axis, sort));
+
+            for (int k = minEntries; k <= sorted.length - minEntries; ++k) {
+                Rectangle r1 = bounds(sorted, 0, k);
+                Rectangle r2 = bounds(sorted, k, sorted.length);
+                double overlap = overlap(r1, r2);
+                double area = area(r1) + area(r2);
+
+                if (overlap < bestOverlap || (overlap == bestOverlap && area < bestArea)) {
+                    best = sorted;
+                    bestK = k;
+                    bestOverlap = overlap;
+                    bestArea = area;
+                }
+            }
+        }
+
+        RStarNode sibling = new RStarNode(node.level, maxEntries);
+        node.entries.clear();
+        for (int i = 0; i < bestK; ++i)
+            addEntry(node, best[i]);
+        for (int i = bestK; i < best.length; ++i)
+            addEntry(sibling, best[i]);
+
+        node.recompute();
+        sibling.recompute();
+        return sibling;
+    }
+
+    /**
+     * Choose split axis having the minimum sum of margins over all distributions
+     *
+     * @return 0 for x-axis and 1 for y-axis
+     */
+    private int chooseSplitAxis(Node[] entries) {
+        int axis = 0;
+        double bestMargin = Double.MAX_VALUE;
+
+        for (int a = 0; a < 2; ++a) {
+            double margin = 0;
+            for (int sort = 0; sort < 2; ++sort) {
+                Node[] sorted = entries.clone();
+                Arrays.sort(sorted, comparator(a, sort));
+
+                for (int k = minEntries; k <= sorted.length - minEntries; ++k)
+                    margin += margin(bounds(sorted, 0, k)) + margin(bounds(sorted, k, sorted.length));
+            }
+
+            if (margin < bestMargin) {
+                bestMargin = margin;
+                axis = a;
+            }
+        }
+
+        return axis;
+    }
+
+    /**
+     * Comparator of entries along an axis by lower (sort = 0) or upper (sort = 1) values
+     */
+    private static Comparator<Node> comparator(int axis, int sort) {
+        if (axis == 0)
+            return sort == 0 ? BY_MIN_X : BY_MAX_X;
+        return sort == 0 ? BY_MIN_Y : BY_MAX_Y;
+    }
+
+    private static final Comparator<Node> BY_MIN_X = new Comparator<Node>() {
+        @Override
+        public int compare(Node n1, Node n2) {
+            return Double.compare(n1.mbr.minPoint.x, n2.mbr.minPoint.x);
+        }
+    };
+
+    private static final Comparator<Node> BY_MAX_X = new Comparator<Node>() {
+        @Override
+        public int compare(Node n1, Node n2) {
+            return Double.compare(n1.mbr.maxPoint.x, n2.mbr.maxPoint.x);
+        }
+    };
+
+    private static final Comparator<Node> BY_MIN_Y = new Comparator<Node>() {
+        @Override
+        public int compare(Node n1, Node n2) {
+            return Double.compare(n1.mbr.minPoint.y, n2.mbr.minPoint.y);
+        }
+    };
+
+    private static final Comparator<Node> BY_MAX_Y = new Comparator<Node>() {
+        @Override
+        public int compare(Node n1, Node n2) {
+            return Double.compare(n1.mbr.maxPoint.y, n2.mbr.maxPoint.y);
+        }
+    };
+
+    private RStarNode findLeaf(RStarNode node, Rectangle mbr, long id) {
+        for (Node entry : node.entries) {
+            if (node.isLeaf()) {
+                if (entry.offset == id && entry.mbr.equals(mbr))
+                    return node;
+            } else if (covers(entry.mbr, mbr)) {
+                RStarNode leaf = findLeaf((RStarNode) entry, mbr, id);
+                if (leaf != null)
+                    return leaf;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove underfull nodes on the path from leaf to root and reinsert their entries
+     */
+    private void condense(RStarNode leaf) {
+        List<RStarNode> eliminated = new ArrayList<RStarNode>();
+        RStarNode node = leaf;
+
+        while (node != root) {
+            RStarNode parent = node.parent;
+            if (node.entries.size() < minEntries) {
+                parent.entries.remove(node);
+                eliminated.add(node);
+            } else {
+                node.recompute();
+            }
+            node = parent;
+        }
+        root.recompute();
+
+        /* Reinsert entries of eliminated nodes at their original levels */
+        for (RStarNode node1 : eliminated)
+            for (Node entry : node1.entries)
+                insert(entry, node1.level, new boolean[height]);
+
+        /* Shorten tree if root has a single child */
+        while (!root.isLeaf() && root.entries.size() == 1) {
+            root = (RStarNode) root.entries.get(0);
+            root.parent = null;
+            --height;
+        }
+    }
+
+    private static Rectangle bounds(Node[] entries, int from, int to) {
+        Rectangle mbr = entries[from].mbr.clone();
+        for (int i = from + 1; i < to; ++i)
+            mbr.expand(entries[i].mbr);
+        return mbr;
+    }
+
+    private static boolean covers(Rectangle r, Rectangle s) {
+        return r.minPoint.x - Shape.EPS < s.minPoint.x && r.minPoint.y - Shape.EPS < s.minPoint.y
+                && r.maxPoint.x + Shape.EPS > s.maxPoint.x && r.maxPoint.y + Shape.EPS > s.maxPoint.y;
+    }
+
+    private static double area(Rectangle r) {
+        return (r.maxPoint.x - r.minPoint.x) * (r.maxPoint.y - r.minPoint.y);
+    }
+
+    private static double margin(Rectangle r) {
+        return (r.maxPoint.x - r.minPoint.x) + (r.maxPoint.y - r.minPoint.y);
+    }
+
+    private static double unionArea(Rectangle r, Rectangle s) {
+        return (Math.max(r.maxPoint.x, s.maxPoint.x) - Math.min(r.minPoint.x, s.minPoint.x))
+                * (Math.max(r.maxPoint.y, s.maxPoint.y) - Math.min(r.minPoint.y, s.minPoint.y));
+    }
+
+    private static double overlap(Rectangle r, Rectangle s) {
+        double w = Math.min(r.maxPoint.x, s.maxPoint.x) - Math.max(r.minPoint.x, s.minPoint.x);
+        double h = Math.min(r.maxPoint.y, s.maxPoint.y) - Math.max(r.minPoint.y, s.minPoint.y);
+        return w <= 0 || h <= 0 ? 0 : w * h;
+    }
+
+    /**
+     * Overlap between other and the union of r and s
+     */
+    private static double unionOverlap(Rectangle r, Rectangle s, Rectangle other) {
+        double w = Math.min(Math.max(r.maxPoint.x, s.maxPoint.x), other.maxPoint.x)
+                - Math.max(Math.min(r.minPoint.x, s.minPoint.x), other.minPoint.x);
+        double h = Math.min(Math.max(r.maxPoint.y, s.maxPoint.y), other.maxPoint.y)
+                - Math.max(Math.min(r.minPoint.y, s.minPoint.y), other.minPoint.y);
+        return w <= 0 || h <= 0 ? 0 : w * h;
+    }
+
+    private static double centerDistance(Rectangle r, double x, double y) {
+        double dx = (r.minPoint.x + r.maxPoint.x) / 2 - x;
+        double dy = (r.minPoint.y + r.maxPoint.y) / 2 - y;
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,41 @@
+package com.swvl.geometry.ds.rtrees;
+
+import java.util.Arrays;
+
+/**
+ * Result of a filter-and-refine query holding the exact hits and the counters of both steps
+ *
+ * @author Hatem Morgan
+ */
+public class RefineResult {
+
+    /* Indices of records (in packing order) that exactly intersect the query */
+    public int[] hits = new int[16];
+
+    /* Number of hits */
+    public int numHits;
+
+    /* Number of records whose MBRs intersect the query's MBR (filter step) */
+    public int candidates;
+
+    void addHit(int record) {
+        if (numHits == hits.length)
+            hits = Arrays.copyOf(hits, hits.length * 2);
+        hits[numHits++] = record;
+    }
+
+    /**
+     * @return indices of records that exactly intersect the query
+     */
+    public int[] getHits() {
+        return Arrays.copyOf(hits, numHits);
+    }
+
+    @Override
+    public String toString() {
+        return "RefineResult{" +
+                "hits=" + numHits +
+                ", candidates=" + candidates +
+                '}';
+    }
+}
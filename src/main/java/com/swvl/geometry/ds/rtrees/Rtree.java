@@ -1,13 +1,37 @@
 package com.swvl.geometry.ds.rtrees;
 
+import com.swvl.geometry.shapes.Point;
+import com.swvl.geometry.shapes.Rectangle;
+import com.swvl.geometry.shapes.Shape;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Arrays;
+
 
 /**
  * R-tree implementation. R-trees handles multi-dimensional data such as geometrical data.
  * The tree structure is represented by an array of nodes to optimize time complexity.
+ * <p>
+ * The tree is a perfect tree of the given degree. Nodes are stored in breadth-first order
+ * in a 1-based array (like a binary heap), thus the children of node i are located at
+ * i * degree + range[j] and the leaves occupy the last numLeaves cells of the array.
+ * Records are kept sorted in the order they are packed into the leaves so that every node
+ * covers a contiguous run of records starting at its offset.
+ * <p>
+ * Traversals always address nodes by their breadth-first indices. The node array itself can
+ * be reordered in van Emde Boas layout ({@link #setLayout(int)}) where node(i) maps an index
+ * to its slot arithmetically.
  *
  * @author Hatem Morgan
  */
 public class Rtree {
+    /* Layouts of the node array */
+    public static final int BREADTH_FIRST = 0;
+    public static final int VAN_EMDE_BOAS = 1;
+
+    /* Bulk loaders packing records into leaves */
+    public static final int STR_LOADER = 0;
+    public static final int HILBERT_LOADER = 1;
 
     protected int degree;
 
@@ -25,18 +49,773 @@ public class Rtree {
 
     protected int[] range;
 
+    /* Records in the order they are packed into leaves (null when the tree is built from MBRs only) */
+    protected Shape[] records;
+
+    /* Minimum bounding rectangles of records in the order they are packed into leaves */
+    protected Rectangle[] recordMbrs;
+
+    /* Index of every packed record in the array given to the bulk loader */
+    protected int[] recordIds;
+
+    /* Slots of nodes in van Emde Boas order (null when nodes are stored in breadth-first order) */
+    protected VebLayout veb;
+
+    /* Bulk loader which packed the tree (STR_LOADER for trees read from files) */
+    protected int loader;
+
+    /* Whether the tree is shared with readers and must not be modified */
+    private volatile boolean frozen;
+
     public Rtree() {
 
     }
 
     public Rtree(int height, int degree) {
+        if (degree < 2)
+            throw new IllegalArgumentException("Degree of Rtree must be greater than or equal 2");
+
         this.degree = degree;
+        this.height = height;
         this.numNodes = (int) Math.ceil((Math.pow(this.degree, height) - 1) / (this.degree - 1));
         this.numLeaves = (int) Math.pow(this.degree, height - 1);
+        this.tree = new Node[numNodes + 1]; // 1-based indexing
 
         range = new int[degree];
         range[0] = 1 - degree + 1;
         for (int i = 1; i < degree; ++i)
             range[i] = range[i - 1] + 1;
     }
+
+    /**
+     * Bulk load shapes into a new tree using Sort-Tile-Recursive (STR) packing. The MBR of
+     * every shape is indexed and the shapes are kept in the order of the leaves so that
+     * {@link #getRecord(int)} can be used with offsets of nodes.
+     *
+     * @param shapes shapes to be indexed
+     * @param degree maximum number of children of a node and of records in a leaf
+     * @return packed tree
+     */
+    public static Rtree bulkLoad(Shape[] shapes, int degree) {
+        Rtree rtree = bulkLoad(mbrsOf(shapes), degree);
+        rtree.attachRecords(shapes);
+        return rtree;
+    }
+
+    /**
+     * Bulk load minimum bounding rectangles of records into a new tree using Sort-Tile-Recursive
+     * (STR) packing. Tiles are cut top-down: records of a node are split by the x-coordinate of
+     * their centers into vertical slices then every slice is split by the y-coordinate into the
+     * children of the node. Splitting uses selection instead of sorting, thus every level costs
+     * O(n log(degree)) and the whole tree O(n log(n)).
+     * <p>
+     * Records are reordered while packing; {@link #getRecordId(int)} maps a packed record back
+     * to its index in mbrs.
+     *
+     * @param mbrs   minimum bounding rectangles of records to be indexed
+     * @param degree maximum number of children of a node and of records in a leaf
+     * @return packed tree
+     */
+    public static Rtree bulkLoad(Rectangle[] mbrs, int degree) {
+        int n = mbrs.length;
+        Rtree rtree = create(n, degree);
+
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = (mbrs[i].minPoint.x + mbrs[i].maxPoint.x) / 2;
+            ys[i] = (mbrs[i].minPoint.y + mbrs[i].maxPoint.y) / 2;
+        }
+
+        rtree.pack(1, 0, rtree.numLeaves, xs, ys);
+        rtree.attachMbrs(mbrs);
+        return rtree;
+    }
+
+    /**
+     * Bulk load shapes into a new tree packed in the order of the Hilbert curve passing
+     * through the center points of shapes ({@link Shape#getCenterPoint()}). Unlike sorting on
+     * x then y, consecutive records along the curve are close in both dimensions thus nodes
+     * of clustered data overlap less.
+     *
+     * @param shapes shapes to be indexed
+     * @param degree maximum number of children of a node and of records in a leaf
+     * @return packed tree
+     */
+    public static Rtree hilbertLoad(Shape[] shapes, int degree) {
+        int n = shapes.length;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; ++i) {
+            Point center = shapes[i].getCenterPoint();
+            xs[i] = center.x;
+            ys[i] = center.y;
+        }
+
+        Rtree rtree = create(n, degree);
+        rtree.loader = HILBERT_LOADER;
+        rtree.hilbertSort(xs, ys);
+        rtree.layout(1, 0, rtree.numLeaves);
+        rtree.attachMbrs(mbrsOf(shapes));
+        rtree.attachRecords(shapes);
+        return rtree;
+    }
+
+    /**
+     * Bulk load minimum bounding rectangles of records into a new tree packed in the order of
+     * the Hilbert curve passing through their centers.
+     *
+     * @param mbrs   minimum bounding rectangles of records to be indexed
+     * @param degree maximum number of children of a node and of records in a leaf
+     * @return packed tree
+     */
+    public static Rtree hilbertLoad(Rectangle[] mbrs, int degree) {
+        int n = mbrs.length;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = (mbrs[i].minPoint.x + mbrs[i].maxPoint.x) / 2;
+            ys[i] = (mbrs[i].minPoint.y + mbrs[i].maxPoint.y) / 2;
+        }
+
+        Rtree rtree = create(n, degree);
+        rtree.loader = HILBERT_LOADER;
+        rtree.hilbertSort(xs, ys);
+        rtree.layout(1, 0, rtree.numLeaves);
+        rtree.attachMbrs(mbrs);
+        return rtree;
+    }
+
+    /**
+     * Create an empty tree of the minimum height holding numRecords records
+     */
+    private static Rtree create(int numRecords, int degree) {
+        Rtree rtree = new Rtree(heightOf(numRecords, degree), degree);
+        rtree.numRecords = numRecords;
+        rtree.recordIds = new int[numRecords];
+        for (int i = 0; i < numRecords; ++i)
+            rtree.recordIds[i] = i;
+        return rtree;
+    }
+
+    private static Rectangle[] mbrsOf(Shape[] shapes) {
+        Rectangle[] mbrs = new Rectangle[shapes.length];
+        for (int i = 0; i < shapes.length; ++i)
+            mbrs[i] = shapes[i].getMBR();
+        return mbrs;
+    }
+
+    /**
+     * Keep MBRs of records in packing order and calculate MBRs of nodes
+     */
+    private void attachMbrs(Rectangle[] mbrs) {
+        recordMbrs = new Rectangle[numRecords];
+        for (int i = 0; i < numRecords; ++i)
+            recordMbrs[i] = mbrs[recordIds[i]];
+
+        computeMbrs();
+    }
+
+    /**
+     * Keep shapes of records in packing order
+     */
+    private void attachRecords(Shape[] shapes) {
+        records = new Shape[numRecords];
+        for (int i = 0; i < numRecords; ++i)
+            records[i] = shapes[recordIds[i]];
+    }
+
+    /**
+     * Sort records by their Hilbert keys. Keys fit in 32 bits thus every key is combined
+     * with its record id in a single long and the primitive array is sorted. The sign bit
+     * is flipped so that signed order of longs matches unsigned order of keys.
+     */
+    private void hilbertSort(double[] xs, double[] ys) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < numRecords; ++i) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        long[] keys = new long[numRecords];
+        for (int i = 0; i < numRecords; ++i)
+            keys[i] = (HilbertCurve.key(xs[i], ys[i], minX, minY, maxX, maxY) << 32 ^ Long.MIN_VALUE) | i;
+
+        Arrays.sort(keys);
+        for (int i = 0; i < numRecords; ++i)
+            recordIds[i] = (int) keys[i];
+    }
+
+    /**
+     * Create nodes covering records in their current order
+     *
+     * @param node      index of node in tree array
+     * @param firstLeaf index (from left to right) of first leaf under node
+     * @param leaves    number of leaves under node
+     */
+    private void layout(int node, int firstLeaf, int leaves) {
+        int lo = leafStart(firstLeaf);
+        int hi = leafStart(firstLeaf + leaves);
+        tree[slot(node)] = new Node(lo, hi - lo, hi - lo, null);
+
+        if (leaves == 1)
+            return;
+
+        int childLeaves = leaves / degree;
+        for (int j = 0; j < degree; ++j)
+            layout(node * degree + range[j], firstLeaf + j * childLeaves, childLeaves);
+    }
+
+    /**
+     * Calculate the minimum height of a perfect tree having leaves with at most degree records
+     */
+    protected static int heightOf(int numRecords, int degree) {
+        int height = 1;
+        long leaves = 1;
+        while (leaves * degree < numRecords) {
+            leaves *= degree;
+            ++height;
+        }
+        return height;
+    }
+
+    /**
+     * Index of first record of a leaf. Records are distributed evenly over leaves thus
+     * leaves differ by at most one record.
+     *
+     * @param leaf index of leaf from left to right (0-based)
+     */
+    protected int leafStart(int leaf) {
+        return (int) ((long) leaf * numRecords / numLeaves);
+    }
+
+    /**
+     * Index of first leaf in the tree array
+     */
+    protected int firstLeaf() {
+        return numNodes - numLeaves + 1;
+    }
+
+    /**
+     * Tile the records covered by a node into its children and recurse on them
+     *
+     * @param node      index of node in tree array
+     * @param firstLeaf index (from left to right) of first leaf under node
+     * @param leaves    number of leaves under node
+     * @param xs        x-coordinates of records' centers indexed by record id
+     * @param ys        y-coordinates of records' centers indexed by record id
+     */
+    private void pack(int node, int firstLeaf, int leaves, double[] xs, double[] ys) {
+        int lo = leafStart(firstLeaf);
+        int hi = leafStart(firstLeaf + leaves);
+        tree[slot(node)] = new Node(lo, hi - lo, hi - lo, null);
+
+        if (leaves == 1)
+            return;
+
+        int childLeaves = leaves / degree;
+        int slices = (int) Math.ceil(Math.sqrt(degree));
+        int childrenPerSlice = (degree + slices - 1) / slices;
+
+        /* Record boundaries of children */
+        int[] cuts = new int[degree + 1];
+        for (int j = 0; j <= degree; ++j)
+            cuts[j] = leafStart(firstLeaf + j * childLeaves);
+
+        /* Boundaries of vertical slices */
+        int numSlices = (degree + childrenPerSlice - 1) / childrenPerSlice;
+        int[] sliceCuts = new int[numSlices + 1];
+        for (int s = 0; s < numSlices; ++s)
+            sliceCuts[s] = cuts[s * childrenPerSlice];
+        sliceCuts[numSlices] = hi;
+
+        partition(xs, sliceCuts, 0, numSlices);
+
+        /* Split every slice horizontally into children */
+        for (int s = 0; s < numSlices; ++s) {
+            int from = s * childrenPerSlice;
+            int to = Math.min(from + childrenPerSlice, degree);
+            partition(ys, cuts, from, to);
+        }
+
+        for (int j = 0; j < degree; ++j)
+            pack(node * degree + range[j], firstLeaf + j * childLeaves, childLeaves, xs, ys);
+    }
+
+    /**
+     * Partition records between cuts[from] and cuts[to] such that records of every group
+     * [cuts[i], cuts[i + 1]) have keys smaller than or equal keys of following groups
+     */
+    private void partition(double[] keys, int[] cuts, int from, int to) {
+        if (to - from <= 1)
+            return;
+
+        int mid = (from + to) >>> 1;
+        select(keys, cuts[from], cuts[to], cuts[mid]);
+
+        partition(keys, cuts, from, mid);
+        partition(keys, cuts, mid, to);
+    }
+
+    /**
+     * Quick select that places the record having the k-th smallest key in [lo, hi) at k with
+     * smaller keys before it and larger keys after it
+     */
+    private void select(double[] keys, int lo, int hi, int k) {
+        if (k <= lo || k >= hi)
+            return;
+
+        int[] ids = recordIds;
+        --hi; // inclusive
+
+        while (hi > lo) {
+            double pivot = keys[ids[(lo + hi) >>> 1]];
+            int i = lo, j = hi;
+
+            while (i <= j) {
+                while (keys[ids[i]] < pivot)
+                    ++i;
+                while (keys[ids[j]] > pivot)
+                    --j;
+
+                if (i <= j) {
+                    int tmp = ids[i];
+                    ids[i] = ids[j];
+                    ids[j] = tmp;
+                    ++i;
+                    --j;
+                }
+            }
+
+            /* [lo, j] <= pivot and [i, hi] >= pivot */
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    /**
+     * Calculate minimum bounding rectangles of nodes bottom-up
+     */
+    protected void computeMbrs() {
+        int firstLeaf = firstLeaf();
+
+        for (int i = firstLeaf; i <= numNodes; ++i) {
+            Node node = node(i);
+            for (int r = (int) node.offset; r < node.offset + node.count; ++r)
+                node.mbr = union(node.mbr, recordMbrs[r]);
+        }
+
+        for (int i = firstLeaf - 1; i >= 1; --i) {
+            Node node = node(i);
+            for (int j = 0; j < degree; ++j)
+                node.mbr = union(node.mbr, node(i * degree + range[j]).mbr);
+        }
+    }
+
+    /**
+     * Expand mbr to cover rect where mbr is created if it is null
+     */
+    private static Rectangle union(Rectangle mbr, Rectangle rect) {
+        if (rect == null)
+            return mbr;
+
+        if (mbr == null)
+            return new Rectangle(rect.minPoint.x, rect.minPoint.y, rect.maxPoint.x, rect.maxPoint.y);
+
+        mbr.expand(rect);
+        return mbr;
+    }
+
+    /**
+     * Window query that walks the tree top-down and passes every leaf whose MBR intersects
+     * the query rectangle to the visitor. The traversal does not allocate any objects.
+     * Candidates counted by {@link QueryStats} are all records of visited leaves.
+     *
+     * @param query   query window
+     * @param visitor callback receiving record ranges of matching leaves
+     */
+    public void search(Rectangle query, LeafVisitor visitor) {
+        if (numRecords == 0)
+            return;
+
+        QueryStats stats = QueryStats.ENABLED ? QueryStats.begin() : null;
+        search(1, firstLeaf(), query.minPoint.x, query.minPoint.y,
+                query.maxPoint.x, query.maxPoint.y, visitor, stats);
+        if (QueryStats.ENABLED)
+            stats.end();
+    }
+
+    private void search(int i, int firstLeaf, double minX, double minY, double maxX, double maxY,
+                        LeafVisitor visitor, QueryStats stats) {
+        Node node = node(i);
+        if (!intersects(node.mbr, minX, minY, maxX, maxY))
+            return;
+
+        if (i >= firstLeaf) {
+            if (QueryStats.ENABLED) {
+                ++stats.leaves;
+                stats.candidates += node.count;
+            }
+            visitor.visit(node.offset, node.size, node.count);
+            return;
+        }
+
+        if (QueryStats.ENABLED)
+            ++stats.internalNodes;
+
+        int child = i * degree + range[0];
+        for (int j = 0; j < degree; ++j)
+            search(child + j, firstLeaf, minX, minY, maxX, maxY, visitor, stats);
+    }
+
+    /**
+     * Count records whose MBRs intersect the query window without reporting them. The count
+     * of a node whose MBR is contained in the window ({@link Rectangle#contains(Shape)}) is
+     * added without descending into it, thus only nodes crossing the boundary of the window
+     * are expanded down to their records.
+     *
+     * @param query query window
+     * @return number of records intersecting the window
+     */
+    public int countInRange(Rectangle query) throws OperationNotSupportedException {
+        if (numRecords == 0)
+            return 0;
+
+        QueryStats stats = QueryStats.ENABLED ? QueryStats.begin() : null;
+        int count = countInRange(1, firstLeaf(), query, stats);
+        if (QueryStats.ENABLED) {
+            stats.hits = count;
+            stats.end();
+        }
+        return count;
+    }
+
+    private int countInRange(int i, int firstLeaf, Rectangle query, QueryStats stats)
+            throws OperationNotSupportedException {
+        Node node = node(i);
+        if (!intersects(node.mbr, query.minPoint.x, query.minPoint.y, query.maxPoint.x, query.maxPoint.y))
+            return 0;
+
+        if (query.contains(node.mbr))
+            return node.count;
+
+        int count = 0;
+        if (i >= firstLeaf) {
+            if (QueryStats.ENABLED) {
+                ++stats.leaves;
+                stats.candidates += node.count;
+            }
+
+            for (int r = (int) node.offset; r < node.offset + node.count; ++r)
+                if (intersects(recordMbrs[r], query.minPoint.x, query.minPoint.y, query.maxPoint.x, query.maxPoint.y))
+                    ++count;
+            return count;
+        }
+
+        if (QueryStats.ENABLED)
+            ++stats.internalNodes;
+
+        int child = i * degree + range[0];
+        for (int j = 0; j < degree; ++j)
+            count += countInRange(child + j, firstLeaf, query, stats);
+        return count;
+    }
+
+    /**
+     * Filter-and-refine query returning the records that exactly intersect the query shape.
+     * The filter step descends the tree using the MBR of the query and collects candidate
+     * records of every matching leaf whose MBRs intersect it; candidates of the leaf are then
+     * refined with {@link Shape#isIntersected(Shape)} (for instance, polygons containing a
+     * query point are refined by {@link com.swvl.geometry.Utilities#polygonPointIntersection}).
+     *
+     * @param query query shape
+     * @return exact hits with the number of candidates of the filter step
+     */
+    public RefineResult query(Shape query) throws OperationNotSupportedException {
+        if (numRecords > 0 && records == null)
+            throw new IllegalStateException("Refinement needs records of a tree built from shapes");
+
+        RefineResult result = new RefineResult();
+        if (numRecords == 0)
+            return result;
+
+        QueryStats stats = QueryStats.ENABLED ? QueryStats.begin() : null;
+        Rectangle mbr = query.getMBR();
+        query(1, firstLeaf(), mbr, query, result, new int[degree], stats);
+        if (QueryStats.ENABLED) {
+            stats.candidates = result.candidates;
+            stats.hits = result.numHits;
+            stats.end();
+        }
+        return result;
+    }
+
+    /**
+     * @param candidates buffer holding candidates of a leaf
+     */
+    private void query(int i, int firstLeaf, Rectangle mbr, Shape query, RefineResult result,
+                       int[] candidates, QueryStats stats) throws OperationNotSupportedException {
+        Node node = node(i);
+        if (!intersects(node.mbr, mbr.minPoint.x, mbr.minPoint.y, mbr.maxPoint.x, mbr.maxPoint.y))
+            return;
+
+        if (i < firstLeaf) {
+            if (QueryStats.ENABLED)
+                ++stats.internalNodes;
+
+            int child = i * degree + range[0];
+            for (int j = 0; j < degree; ++j)
+                query(child + j, firstLeaf, mbr, query, result, candidates, stats);
+            return;
+        }
+
+        if (QueryStats.ENABLED)
+            ++stats.leaves;
+
+        /* Filter records of leaf by their MBRs */
+        int numCandidates = 0;
+        for (int r = (int) node.offset; r < node.offset + node.count; ++r)
+            if (intersects(recordMbrs[r], mbr.minPoint.x, mbr.minPoint.y, mbr.maxPoint.x, mbr.maxPoint.y))
+                candidates[numCandidates++] = r;
+
+        result.candidates += numCandidates;
+
+        /* Refine candidates with the exact shapes */
+        for (int c = 0; c < numCandidates; ++c)
+            if (records[candidates[c]].isIntersected(query))
+                result.addHit(candidates[c]);
+    }
+
+    /**
+     * Best-first k-nearest-neighbour search pulling the first k records of
+     * {@link #nearestNeighbours(Point)}. Candidates counted by {@link QueryStats} are the
+     * refined records and hits are the reported neighbours.
+     *
+     * @param point query point
+     * @param k     number of neighbours
+     * @return indices of the k nearest records (in packing order) sorted by distance
+     */
+    public int[] nearestNeighbours(Point point, int k) throws OperationNotSupportedException {
+        int[] result = new int[Math.min(k, numRecords)];
+        if (result.length == 0)
+            return result;
+
+        QueryStats stats = QueryStats.ENABLED ? QueryStats.begin() : null;
+        NearestNeighbourIterator iterator = new NearestNeighbourIterator(this, point, stats);
+        for (int i = 0; i < result.length; ++i)
+            result[i] = iterator.nextRecord();
+
+        if (QueryStats.ENABLED)
+            stats.end();
+        return result;
+    }
+
+    /**
+     * Incremental nearest-neighbour search for callers that do not know the number of
+     * neighbours in advance. The search advances only as records are pulled.
+     *
+     * @param point query point
+     * @return iterator over indices of records (in packing order) in increasing distance
+     */
+    public NearestNeighbourIterator nearestNeighbours(Point point) {
+        return new NearestNeighbourIterator(this, point, null);
+    }
+
+    /**
+     * Batch point location. Points are probed in the order of the Hilbert curve over the root
+     * MBR, thus consecutive probes descend mostly the same paths whose nodes and records are
+     * still in cache. Records are refined with {@link Shape#isIntersected(Shape)} against a
+     * single reused probe point, or by their MBRs for trees built from MBRs only.
+     *
+     * @param xs  x coordinates of points
+     * @param ys  y coordinates of points
+     * @param out receives for every point the index (in packing order) of the first record
+     *            containing it, or -1 if no record contains it
+     */
+    public void locate(double[] xs, double[] ys, int[] out) throws OperationNotSupportedException {
+        int n = xs.length;
+        if (ys.length != n || out.length < n)
+            throw new IllegalArgumentException("Coordinates and output must have the same length");
+
+        Arrays.fill(out, 0, n, -1);
+        if (numRecords == 0 || n == 0)
+            return;
+
+        Rectangle root = node(1).mbr;
+        long[] order = new long[n];
+        for (int i = 0; i < n; ++i)
+            order[i] = (HilbertCurve.key(xs[i], ys[i], root.minPoint.x, root.minPoint.y,
+                    root.maxPoint.x, root.maxPoint.y) << 32 ^ Long.MIN_VALUE) | i;
+        Arrays.sort(order);
+
+        int firstLeaf = firstLeaf();
+        Point probe = new Point();
+        for (long key : order) {
+            int i = (int) key;
+            probe.set(xs[i], ys[i]);
+            out[i] = locate(1, firstLeaf, probe);
+        }
+    }
+
+    /**
+     * @return index of first record under node i containing the probe or -1
+     */
+    private int locate(int i, int firstLeaf, Point probe) throws OperationNotSupportedException {
+        Node node = node(i);
+        if (!intersects(node.mbr, probe.x, probe.y, probe.x, probe.y))
+            return -1;
+
+        if (i < firstLeaf) {
+            int child = i * degree + range[0];
+            for (int j = 0; j < degree; ++j) {
+                int found = locate(child + j, firstLeaf, probe);
+                if (found >= 0)
+                    return found;
+            }
+            return -1;
+        }
+
+        for (int r = (int) node.offset; r < node.offset + node.count; ++r)
+            if (intersects(recordMbrs[r], probe.x, probe.y, probe.x, probe.y)
+                    && (records == null || records[r].isIntersected(probe)))
+                return r;
+        return -1;
+    }
+
+    /**
+     * Minimum Euclidean distance between a point and a rectangle (zero if point is inside)
+     */
+    static double minDistance(Rectangle rect, double x, double y) {
+        double dx = Math.max(0, Math.max(rect.minPoint.x - x, x - rect.maxPoint.x));
+        double dy = Math.max(0, Math.max(rect.minPoint.y - y, y - rect.maxPoint.y));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Check intersection between rectangle and a window with the same tolerance of
+     * {@link Rectangle#isIntersected(Shape)}
+     */
+    static boolean intersects(Rectangle rect, double minX, double minY, double maxX, double maxY) {
+        return rect.maxPoint.x + Shape.EPS > minX
+                && rect.maxPoint.y + Shape.EPS > minY
+                && maxX + Shape.EPS > rect.minPoint.x
+                && maxY + Shape.EPS > rect.minPoint.y;
+    }
+
+    public int getDegree() {
+        return degree;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    public int getNumLeaves() {
+        return numLeaves;
+    }
+
+    public int getNumRecords() {
+        return numRecords;
+    }
+
+    /**
+     * @param i breadth-first index of node (root is at 1) whatever the layout of the tree array
+     */
+    public Node getNode(int i) {
+        return node(i);
+    }
+
+    public int getLayout() {
+        return veb == null ? BREADTH_FIRST : VAN_EMDE_BOAS;
+    }
+
+    /**
+     * @return STR_LOADER or HILBERT_LOADER
+     */
+    public int getLoader() {
+        return loader;
+    }
+
+    /**
+     * Reject later changes of the tree once it is shared with concurrent readers
+     */
+    void freeze() {
+        frozen = true;
+    }
+
+    /**
+     * Reorder the node array in the given layout. Nodes keep their breadth-first indices
+     * used by traversals; only the slots holding them change. In van Emde Boas order, a
+     * root-to-leaf path touches far fewer cache lines and pages of large (or memory-mapped)
+     * trees. The tree must not be queried concurrently while its layout changes.
+     *
+     * @param layout BREADTH_FIRST or VAN_EMDE_BOAS
+     * @throws IllegalStateException if the tree is published by {@link ConcurrentRtree}
+     */
+    public void setLayout(int layout) {
+        if (layout != BREADTH_FIRST && layout != VAN_EMDE_BOAS)
+            throw new IllegalArgumentException("Unknown layout " + layout);
+        if (frozen)
+            throw new IllegalStateException("Published tree cannot be modified");
+        if (layout == getLayout())
+            return;
+
+        VebLayout target = layout == VAN_EMDE_BOAS ? new VebLayout(height, degree) : null;
+        Node[] nodes = new Node[numNodes + 1];
+        for (int i = 1; i <= numNodes; ++i)
+            nodes[target == null ? i : target.slot(i)] = node(i);
+
+        tree = nodes;
+        veb = target;
+    }
+
+    /**
+     * @param i breadth-first index of node (root is at 1)
+     * @return node stored in the slot of the tree array of the current layout
+     */
+    protected Node node(int i) {
+        return veb == null ? tree[i] : tree[veb.slot(i)];
+    }
+
+    /**
+     * @param i breadth-first index of node (root is at 1)
+     * @return slot of the tree array holding node in the current layout
+     */
+    protected int slot(int i) {
+        return veb == null ? i : veb.slot(i);
+    }
+
+    /**
+     * @param i index of record in packing order
+     * @return record shape or null if the tree is built from MBRs only
+     */
+    public Shape getRecord(int i) {
+        return records == null ? null : records[i];
+    }
+
+    /**
+     * @param i index of record in packing order
+     */
+    public Rectangle getRecordMbr(int i) {
+        return recordMbrs[i];
+    }
+
+    /**
+     * @param i index of record in packing order
+     * @return index of record in the array given to the bulk loader
+     */
+    public int getRecordId(int i) {
+        return recordIds[i];
+    }
 }
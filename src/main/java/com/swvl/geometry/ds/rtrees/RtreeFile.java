@@ -0,0 +1,143 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Rectangle;
+import com.swvl.geometry.shapes.Shape;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Binary file layout of an Rtree holding the node array followed by the record payloads.
+ * The file is meant to be memory-mapped by {@link MappedRtree} and queried in place.
+ * <pre>
+ * Header (64 bytes):
+ *   int magic, int version, int degree, int height, int numNodes, int numLeaves,
+ *   long numRecords, long nodesOffset, long recordsOffset, int layout, padding
+ * Nodes (NODE_SIZE bytes each, in tree array order of the layout of the tree):
+ *   double minX, double minY, double maxX, double maxY, long offset, long size, int count, padding
+ * Records (in packing order):
+ *   long id, shape encoded by ShapeCodec
+ * </pre>
+ * Offset and size of a node are the position of its first record in the file and the
+ * number of bytes of its records. All values are big-endian.
+ *
+ * @author Hatem Morgan
+ */
+public final class RtreeFile {
+    static final int MAGIC = 0x52545245; // "RTRE"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int NODE_SIZE = 56;
+
+    /* Size of buffer used while writing */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private RtreeFile() {
+    }
+
+    /**
+     * Write tree with its records to file. Records of trees built from MBRs only are written
+     * as rectangles.
+     *
+     * @param rtree tree to be written
+     * @param file  output file which is overwritten if exists
+     */
+    public static void write(Rtree rtree, File file) throws IOException {
+        int n = rtree.numRecords;
+        long nodesOffset = HEADER_SIZE;
+        long recordsOffset = nodesOffset + (long) rtree.numNodes * NODE_SIZE;
+
+        /* Position of every record in file */
+        long[] positions = new long[n + 1];
+        positions[0] = recordsOffset;
+        for (int i = 0; i < n; ++i)
+            positions[i + 1] = positions[i] + 8 + ShapeCodec.sizeOf(record(rtree, i));
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(rtree.degree);
+            buffer.putInt(rtree.height);
+            buffer.putInt(rtree.numNodes);
+            buffer.putInt(rtree.numLeaves);
+            buffer.putLong(n);
+            buffer.putLong(nodesOffset);
+            buffer.putLong(recordsOffset);
+            buffer.putInt(rtree.getLayout());
+            buffer.position(HEADER_SIZE);
+
+            for (int i = 1; i <= rtree.numNodes; ++i) {
+                buffer = ensure(channel, buffer, NODE_SIZE);
+                Node node = rtree.tree[i];
+                writeMbr(buffer, node.mbr);
+                int first = (int) node.offset;
+                buffer.putLong(positions[first]);
+                buffer.putLong(positions[first + node.count] - positions[first]);
+                buffer.putInt(node.count);
+                buffer.position(buffer.position() + NODE_SIZE - 52);
+            }
+
+            for (int i = 0; i < n; ++i) {
+                Shape record = record(rtree, i);
+                buffer = ensure(channel, buffer, 8 + ShapeCodec.sizeOf(record));
+                buffer.putLong(rtree.recordIds[i]);
+                ShapeCodec.write(buffer, record);
+            }
+
+            flush(channel, buffer);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static Shape record(Rtree rtree, int i) {
+        return rtree.records == null ? rtree.recordMbrs[i] : rtree.records[i];
+    }
+
+    /**
+     * Write MBR of a node where empty nodes are written as an inverted rectangle that does
+     * not intersect any query
+     */
+    static void writeMbr(ByteBuffer buffer, Rectangle mbr) {
+        if (mbr == null) {
+            buffer.putDouble(Double.MAX_VALUE);
+            buffer.putDouble(Double.MAX_VALUE);
+            buffer.putDouble(-Double.MAX_VALUE);
+            buffer.putDouble(-Double.MAX_VALUE);
+        } else {
+            buffer.putDouble(mbr.minPoint.x);
+            buffer.putDouble(mbr.minPoint.y);
+            buffer.putDouble(mbr.maxPoint.x);
+            buffer.putDouble(mbr.maxPoint.y);
+        }
+    }
+
+    /**
+     * Flush buffer if it does not have the given number of bytes remaining. A larger buffer
+     * is returned if bytes exceed its capacity.
+     */
+    static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes)
+            return buffer;
+
+        flush(channel, buffer);
+        if (buffer.capacity() < bytes)
+            return ByteBuffer.allocate(bytes);
+        return buffer;
+    }
+
+    static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
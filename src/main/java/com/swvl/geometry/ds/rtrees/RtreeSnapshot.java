@@ -0,0 +1,200 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Rectangle;
+import com.swvl.geometry.shapes.Shape;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Compact binary snapshot of an in-memory {@link Rtree}. The node array, metadata and
+ * records are streamed through a {@link FileChannel} in one sequential pass in both
+ * directions, which is far smaller and faster than Java serialization of the object graph.
+ * <pre>
+ * Header (40 bytes):
+ *   int magic, int version, int degree, int height, int numNodes, int numLeaves,
+ *   int numRecords, int hasRecords, int layout, int loader
+ * Nodes (in tree array order of the layout of the tree):
+ *   double minX, double minY, double maxX, double maxY, long offset, long size, int count
+ * Records (in packing order):
+ *   int id, double minX, double minY, double maxX, double maxY, shape encoded by ShapeCodec (if hasRecords)
+ * </pre>
+ *
+ * @author Hatem Morgan
+ */
+public final class RtreeSnapshot {
+    static final int MAGIC = 0x5254534E; // "RTSN"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+    static final int NODE_SIZE = 52;
+    static final int RECORD_SIZE = 36;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private RtreeSnapshot() {
+    }
+
+    /**
+     * Write tree to file which is overwritten if exists
+     */
+    public static void write(Rtree rtree, File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(rtree.degree);
+            buffer.putInt(rtree.height);
+            buffer.putInt(rtree.numNodes);
+            buffer.putInt(rtree.numLeaves);
+            buffer.putInt(rtree.numRecords);
+            buffer.putInt(rtree.records == null ? 0 : 1);
+            buffer.putInt(rtree.getLayout());
+            buffer.putInt(rtree.loader);
+
+            for (int i = 1; i <= rtree.numNodes; ++i) {
+                buffer = RtreeFile.ensure(channel, buffer, NODE_SIZE);
+                Node node = rtree.tree[i];
+                RtreeFile.writeMbr(buffer, node.mbr);
+                buffer.putLong(node.offset);
+                buffer.putLong(node.size);
+                buffer.putInt(node.count);
+            }
+
+            for (int i = 0; i < rtree.numRecords; ++i) {
+                Shape record = rtree.records == null ? null : rtree.records[i];
+                int size = RECORD_SIZE + (record == null ? 0 : ShapeCodec.sizeOf(record));
+                buffer = RtreeFile.ensure(channel, buffer, size);
+                buffer.putInt(rtree.recordIds[i]);
+                RtreeFile.writeMbr(buffer, rtree.recordMbrs[i]);
+                if (record != null)
+                    ShapeCodec.write(buffer, record);
+            }
+
+            RtreeFile.flush(channel, buffer);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Read a tree written by {@link #write(Rtree, File)}
+     */
+    public static Rtree read(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.limit(0);
+
+            buffer = require(channel, buffer, HEADER_SIZE);
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not an Rtree snapshot");
+            int version = buffer.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported Rtree snapshot version " + version);
+
+            Rtree rtree = new Rtree();
+            rtree.degree = buffer.getInt();
+            rtree.height = buffer.getInt();
+            rtree.numNodes = buffer.getInt();
+            rtree.numLeaves = buffer.getInt();
+            rtree.numRecords = buffer.getInt();
+            boolean hasRecords = buffer.getInt() != 0;
+            int layout = buffer.getInt();
+            rtree.loader = buffer.getInt();
+
+            rtree.range = new int[rtree.degree];
+            for (int j = 0; j < rtree.degree; ++j)
+                rtree.range[j] = j + 2 - rtree.degree;
+
+            if (layout == Rtree.VAN_EMDE_BOAS)
+                rtree.veb = new VebLayout(rtree.height, rtree.degree);
+            rtree.tree = new Node[rtree.numNodes + 1];
+            for (int i = 1; i <= rtree.numNodes; ++i) {
+                buffer = require(channel, buffer, NODE_SIZE);
+                Rectangle mbr = readMbr(buffer);
+                long offset = buffer.getLong();
+                long size = buffer.getLong();
+                int count = buffer.getInt();
+                rtree.tree[i] = new Node(offset, size, count, count == 0 ? null : mbr);
+            }
+
+            int n = rtree.numRecords;
+            rtree.recordIds = new int[n];
+            rtree.recordMbrs = new Rectangle[n];
+            rtree.records = hasRecords ? new Shape[n] : null;
+            for (int i = 0; i < n; ++i) {
+                buffer = require(channel, buffer, RECORD_SIZE);
+                rtree.recordIds[i] = buffer.getInt();
+                rtree.recordMbrs[i] = readMbr(buffer);
+
+                if (hasRecords) {
+                    /* Type of shape followed by number of points of a polygon */
+                    buffer = require(channel, buffer, 1);
+                    byte type = buffer.get(buffer.position());
+                    if (type < ShapeCodec.POINT || type > ShapeCodec.POLYGON)
+                        throw new IOException("Unknown shape type " + type + " in Rtree snapshot");
+
+                    int numPoints = type == ShapeCodec.POINT ? 1 : 2;
+                    if (type == ShapeCodec.POLYGON) {
+                        buffer = require(channel, buffer, 5);
+                        numPoints = buffer.getInt(buffer.position() + 1);
+                        if (numPoints < 0 || numPoints > (Integer.MAX_VALUE - 5) / 16)
+                            throw new IOException("Invalid number of polygon points " + numPoints + " in Rtree snapshot");
+                    }
+
+                    buffer = require(channel, buffer, ShapeCodec.sizeOf(type, numPoints));
+                    rtree.records[i] = ShapeCodec.read(buffer);
+                }
+            }
+
+            return rtree;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static Rectangle readMbr(ByteBuffer buffer) {
+        double minX = buffer.getDouble();
+        double minY = buffer.getDouble();
+        double maxX = buffer.getDouble();
+        double maxY = buffer.getDouble();
+        return new Rectangle(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Make sure that buffer has the given number of bytes remaining by reading more from
+     * channel. A larger buffer is returned if bytes exceed its capacity.
+     *
+     * @throws EOFException if the file ends before the given number of bytes
+     */
+    private static ByteBuffer require(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes)
+            return buffer;
+
+        if (buffer.capacity() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(bytes);
+            larger.put(buffer);
+            larger.flip();
+            buffer = larger;
+        }
+
+        buffer.compact();
+        while (buffer.position() < bytes)
+            if (channel.read(buffer) < 0)
+                break;
+        buffer.flip();
+
+        if (buffer.remaining() < bytes)
+            throw new EOFException("Unexpected end of Rtree snapshot");
+        return buffer;
+    }
+}
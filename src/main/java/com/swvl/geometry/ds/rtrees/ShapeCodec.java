@@ -0,0 +1,113 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.LineSegment;
+import com.swvl.geometry.shapes.Point;
+import com.swvl.geometry.shapes.Polygon;
+import com.swvl.geometry.shapes.Rectangle;
+import com.swvl.geometry.shapes.Shape;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary encoding of shapes used by the Rtree file formats. A shape is written as
+ * a type byte followed by its coordinates; polygons also write the number of their points
+ * (including the closing vertex) as an int before the coordinates.
+ *
+ * @author Hatem Morgan
+ */
+final class ShapeCodec {
+    static final byte POINT = 1;
+    static final byte RECTANGLE = 2;
+    static final byte LINE_SEGMENT = 3;
+    static final byte POLYGON = 4;
+
+    private ShapeCodec() {
+    }
+
+    /**
+     * Number of bytes needed to encode a shape
+     */
+    static int sizeOf(Shape shape) {
+        if (shape instanceof Point)
+            return sizeOf(POINT, 1);
+
+        if (shape instanceof Rectangle)
+            return sizeOf(RECTANGLE, 2);
+
+        if (shape instanceof LineSegment)
+            return sizeOf(LINE_SEGMENT, 2);
+
+        if (shape instanceof Polygon)
+            return sizeOf(POLYGON, ((Polygon) shape).points.length);
+
+        throw new IllegalArgumentException("Encoding is not supported for " + shape.getClass());
+    }
+
+    /**
+     * Number of bytes needed to encode a shape of the given type having numPoints points
+     */
+    static int sizeOf(byte type, int numPoints) {
+        if (type == POLYGON)
+            return 1 + 4 + numPoints * 16;
+        return 1 + numPoints * 16;
+    }
+
+    /**
+     * Write shape at the current position of buffer
+     */
+    static void write(ByteBuffer buffer, Shape shape) {
+        if (shape instanceof Point) {
+            buffer.put(POINT);
+            writePoint(buffer, (Point) shape);
+        } else if (shape instanceof Rectangle) {
+            buffer.put(RECTANGLE);
+            writePoint(buffer, ((Rectangle) shape).minPoint);
+            writePoint(buffer, ((Rectangle) shape).maxPoint);
+        } else if (shape instanceof LineSegment) {
+            buffer.put(LINE_SEGMENT);
+            writePoint(buffer, ((LineSegment) shape).p1);
+            writePoint(buffer, ((LineSegment) shape).p2);
+        } else if (shape instanceof Polygon) {
+            Point[] points = ((Polygon) shape).points;
+            buffer.put(POLYGON);
+            buffer.putInt(points.length);
+            for (Point point : points)
+                writePoint(buffer, point);
+        } else {
+            throw new IllegalArgumentException("Encoding is not supported for " + shape.getClass());
+        }
+    }
+
+    /**
+     * Read shape from the current position of buffer
+     */
+    static Shape read(ByteBuffer buffer) {
+        byte type = buffer.get();
+
+        switch (type) {
+            case POINT:
+                return readPoint(buffer);
+            case RECTANGLE:
+                return new Rectangle(readPoint(buffer), readPoint(buffer));
+            case LINE_SEGMENT:
+                return new LineSegment(readPoint(buffer), readPoint(buffer));
+            case POLYGON:
+                Point[] points = new Point[buffer.getInt()];
+                for (int i = 0; i < points.length; ++i)
+                    points[i] = readPoint(buffer);
+                return new Polygon(points);
+            default:
+                throw new IllegalArgumentException("Unknown shape type " + type);
+        }
+    }
+
+    private static void writePoint(ByteBuffer buffer, Point point) {
+        buffer.putDouble(point.x);
+        buffer.putDouble(point.y);
+    }
+
+    private static Point readPoint(ByteBuffer buffer) {
+        double x = buffer.getDouble();
+        return new Point(x, buffer.getDouble());
+    }
+}
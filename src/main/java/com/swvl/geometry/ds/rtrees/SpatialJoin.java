@@ -0,0 +1,209 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Rectangle;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Spatial join of two Rtrees by synchronized traversal. Both trees are descended at the same
+ * time and only pairs of subtrees whose MBRs intersect are followed, thus the join costs
+ * roughly the number of intersecting node pairs instead of the product of record counts.
+ * Pairs of leaves are refined by testing MBRs of their records.
+ *
+ * @author Hatem Morgan
+ */
+public final class SpatialJoin {
+
+    /* Pairs of subtrees with more pairs of records than this are split into child tasks */
+    private static final long SPLIT_THRESHOLD = 1 << 12;
+
+    private SpatialJoin() {
+    }
+
+    /**
+     * Emit every pair of records of r and s whose MBRs intersect
+     */
+    public static void join(Rtree r, Rtree s, JoinVisitor visitor) {
+        if (r.numRecords == 0 || s.numRecords == 0)
+            return;
+
+        join(r, s, 1, 1, r.firstLeaf(), s.firstLeaf(), visitor);
+    }
+
+    /**
+     * Emit every pair of records of r and s whose MBRs intersect using the threads of an
+     * executor. Every task takes a pair of intersecting subtrees; a pair holding more than
+     * SPLIT_THRESHOLD pairs of records submits the intersecting pairs of its children as new
+     * tasks, otherwise it is joined by the task. Dense regions of the trees are thus split
+     * further than sparse ones and idle threads pick up the remaining pieces.
+     *
+     * @param visitor  thread-safe callback receiving pairs of records
+     * @param executor executor running join tasks
+     */
+    public static void join(Rtree r, Rtree s, JoinVisitor visitor, ExecutorService executor)
+            throws InterruptedException {
+        if (r.numRecords == 0 || s.numRecords == 0)
+            return;
+
+        new ParallelJoin(r, s, visitor, executor).run();
+    }
+
+    /**
+     * Tasks of a parallel join with the number of tasks submitted and not yet finished
+     */
+    private static final class ParallelJoin {
+        private final Rtree r, s;
+        private final int firstLeafR, firstLeafS;
+        private final JoinVisitor visitor;
+        private final ExecutorService executor;
+
+        /* Guarded by this */
+        private int pending;
+
+        /* First exception thrown by a task which stops splitting */
+        private volatile Throwable failure;
+
+        ParallelJoin(Rtree r, Rtree s, JoinVisitor visitor, ExecutorService executor) {
+            this.r = r;
+            this.s = s;
+            this.firstLeafR = r.firstLeaf();
+            this.firstLeafS = s.firstLeaf();
+            this.visitor = visitor;
+            this.executor = executor;
+        }
+
+        void run() throws InterruptedException {
+            submit(1, 1);
+            synchronized (this) {
+                while (pending > 0)
+                    wait();
+            }
+
+            if (failure instanceof RuntimeException)
+                throw (RuntimeException) failure;
+            if (failure instanceof Error)
+                throw (Error) failure;
+            if (failure != null)
+                throw new IllegalStateException(failure);
+        }
+
+        private void submit(final int i, final int j) {
+            synchronized (this) {
+                ++pending;
+            }
+
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (failure == null)
+                                split(i, j);
+                        } catch (Throwable e) {
+                            synchronized (ParallelJoin.this) {
+                                if (failure == null)
+                                    failure = e;
+                            }
+                        } finally {
+                            finish();
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                finish();
+                throw e;
+            }
+        }
+
+        private synchronized void finish() {
+            if (--pending == 0)
+                notifyAll();
+        }
+
+        /**
+         * Join subtree i of r with subtree j of s, or submit pairs of their children if both
+         * subtrees hold too many pairs of records
+         */
+        private void split(int i, int j) {
+            Node nodeR = r.node(i);
+            Node nodeS = s.node(j);
+            if (!intersects(nodeR.mbr, nodeS.mbr))
+                return;
+
+            boolean leafR = i >= firstLeafR;
+            boolean leafS = j >= firstLeafS;
+            if ((leafR && leafS) || (long) nodeR.count * nodeS.count <= SPLIT_THRESHOLD) {
+                join(r, s, i, j, firstLeafR, firstLeafS, visitor);
+                return;
+            }
+
+            int firstR = leafR ? i : i * r.degree + r.range[0];
+            int lastR = leafR ? i : firstR + r.degree - 1;
+            int firstS = leafS ? j : j * s.degree + s.range[0];
+            int lastS = leafS ? j : firstS + s.degree - 1;
+
+            for (int a = firstR; a <= lastR; ++a)
+                if (intersects(r.node(a).mbr, nodeS.mbr))
+                    for (int b = firstS; b <= lastS; ++b)
+                        if (intersects(r.node(a).mbr, s.node(b).mbr))
+                            submit(a, b);
+        }
+    }
+
+    /**
+     * Join subtree i of r with subtree j of s
+     */
+    private static void join(Rtree r, Rtree s, int i, int j, int firstLeafR, int firstLeafS,
+                             JoinVisitor visitor) {
+        Node nodeR = r.node(i);
+        Node nodeS = s.node(j);
+        if (!intersects(nodeR.mbr, nodeS.mbr))
+            return;
+
+        boolean leafR = i >= firstLeafR;
+        boolean leafS = j >= firstLeafS;
+
+        if (leafR && leafS) {
+            joinLeaves(r, s, nodeR, nodeS, visitor);
+        } else if (leafR) {
+            int child = j * s.degree + s.range[0];
+            for (int c = 0; c < s.degree; ++c)
+                join(r, s, i, child + c, firstLeafR, firstLeafS, visitor);
+        } else if (leafS) {
+            int child = i * r.degree + r.range[0];
+            for (int c = 0; c < r.degree; ++c)
+                join(r, s, child + c, j, firstLeafR, firstLeafS, visitor);
+        } else {
+            int childR = i * r.degree + r.range[0];
+            int childS = j * s.degree + s.range[0];
+            for (int a = 0; a < r.degree; ++a)
+                if (intersects(r.node(childR + a).mbr, nodeS.mbr))
+                    for (int b = 0; b < s.degree; ++b)
+                        join(r, s, childR + a, childS + b, firstLeafR, firstLeafS, visitor);
+        }
+    }
+
+    /**
+     * Compare records of two leaves restricting both sides to records intersecting the
+     * other leaf's MBR first
+     */
+    private static void joinLeaves(Rtree r, Rtree s, Node leafR, Node leafS, JoinVisitor visitor) {
+        int endR = (int) leafR.offset + leafR.count;
+        int endS = (int) leafS.offset + leafS.count;
+
+        for (int a = (int) leafR.offset; a < endR; ++a) {
+            Rectangle mbrR = r.recordMbrs[a];
+            if (!intersects(mbrR, leafS.mbr))
+                continue;
+
+            for (int b = (int) leafS.offset; b < endS; ++b)
+                if (intersects(mbrR, s.recordMbrs[b]))
+                    visitor.visit(a, b);
+        }
+    }
+
+    private static boolean intersects(Rectangle r1, Rectangle r2) {
+        return r1 != null && r2 != null
+                && Rtree.intersects(r1, r2.minPoint.x, r2.minPoint.y, r2.maxPoint.x, r2.maxPoint.y);
+    }
+}
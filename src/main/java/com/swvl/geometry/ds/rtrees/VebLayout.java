@@ -0,0 +1,74 @@
+package com.swvl.geometry.ds.rtrees;
+
+/**
+ * Van Emde Boas (cache-oblivious) layout of a perfect tree whose nodes are identified by
+ * their breadth-first indices. A tree of height h is split into a top tree of height
+ * h - h / 2 and the bottom trees of height h / 2 hanging from its leaves; the top tree is
+ * stored first followed by the bottom trees from left to right, each one laid out the same
+ * way recursively. Whatever the size of a cache line or a page, a root-to-leaf path crosses
+ * only a logarithmic number of blocks of that size.
+ * <p>
+ * Slots are calculated arithmetically from the breadth-first index in O(log height) steps:
+ * the depth of a node is found by binary search over the first indices of the levels, then
+ * the recursive split is descended halving the height of the subtree at every step.
+ *
+ * @author Hatem Morgan
+ */
+final class VebLayout {
+    private final int height;
+
+    /* pow[d] = degree^d is the number of nodes at depth d */
+    private final long[] pow;
+
+    /* size[h] is the number of nodes of a perfect tree of height h, thus level d starts at size[d] + 1 */
+    private final long[] size;
+
+    VebLayout(int height, int degree) {
+        this.height = height;
+        pow = new long[height + 1];
+        size = new long[height + 1];
+        pow[0] = 1;
+        for (int h = 1; h <= height; ++h) {
+            pow[h] = pow[h - 1] * degree;
+            size[h] = size[h - 1] + pow[h - 1];
+        }
+    }
+
+    /**
+     * @param i breadth-first index of a node (root is at 1)
+     * @return 1-based slot of node in van Emde Boas order
+     */
+    int slot(int i) {
+        /* Depth of node is the last level starting at or before i */
+        int lo = 0, hi = height - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (size[mid] < i)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        int depth = lo;
+        long offset = i - size[depth] - 1;
+
+        /* Descend the recursive split keeping the slot of the root of the subtree holding the node */
+        long slot = 1;
+        int top = 0, h = height;
+        while (depth != top) {
+            int lower = h / 2;
+            int upper = h - lower;
+
+            if (depth < top + upper) {
+                h = upper;
+            } else {
+                long width = pow[depth - top - upper];
+                long bottom = offset / width;
+                slot += size[upper] + bottom * size[lower];
+                offset -= bottom * width;
+                top += upper;
+                h = lower;
+            }
+        }
+        return (int) slot;
+    }
+}
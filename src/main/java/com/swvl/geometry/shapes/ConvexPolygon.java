@@ -0,0 +1,111 @@
+package com.swvl.geometry.shapes;
+
+import com.swvl.geometry.Utilities;
+
+import javax.naming.OperationNotSupportedException;
+
+/**
+ * Convex polygon answering point queries in O(log n). The polygon is split into a fan of
+ * triangles from its first vertex; a query binary searches the wedge of the fan holding it by
+ * the side of the rays from the first vertex it lies on, then tests it against the single
+ * edge closing that wedge. Points within EPS of the boundary are contained as in
+ * {@link Utilities#polygonPointIntersection(Point, Polygon)}.
+ * <p>
+ * Queries run on the vertices of the convex hull of the polygon, which is the polygon itself
+ * without collinear vertices. Points of the polygon must not be modified after construction.
+ *
+ * @author Hatem Morgan
+ */
+public class ConvexPolygon extends Polygon {
+    /* Vertices of the fan in counter-clockwise order without repeating the first one */
+    private final double[] xs;
+    private final double[] ys;
+
+    /**
+     * @throws IllegalArgumentException if the polygon is not convex
+     */
+    public ConvexPolygon(Polygon polygon) {
+        super(polygon.points);
+
+        if (!isConvex())
+            throw new IllegalArgumentException("Polygon is not convex");
+
+        Point[] hull = Utilities.convexHull(points);
+        xs = new double[hull.length - 1];
+        ys = new double[hull.length - 1];
+        for (int i = 0; i < xs.length; ++i) {
+            xs[i] = hull[i].x;
+            ys[i] = hull[i].y;
+        }
+    }
+
+    /**
+     * @return true if the point is inside the polygon or on its boundary
+     */
+    public boolean contains(double x, double y) {
+        int n = xs.length;
+
+        /* Outside the rays of the first and last edges from the first vertex */
+        if (cross(0, 1, x, y) < 0)
+            return nearEdges(0, x, y);
+        if (cross(0, n - 1, x, y) > 0)
+            return nearEdges(n - 1, x, y);
+
+        /* Last ray from the first vertex having the point on its left */
+        int lo = 1, hi = n - 1;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (cross(0, mid, x, y) >= 0)
+                lo = mid;
+            else
+                hi = mid;
+        }
+
+        return cross(lo, lo + 1, x, y) >= 0 || nearEdges(lo, x, y);
+    }
+
+    /**
+     * Cross product of vector from vertex i to vertex j and vector from vertex i to (x, y)
+     * which is positive if (x, y) is on the left side of ij
+     */
+    private double cross(int i, int j, double x, double y) {
+        return (xs[j] - xs[i]) * (y - ys[i]) - (ys[j] - ys[i]) * (x - xs[i]);
+    }
+
+    /**
+     * Check if point outside the fan near edge i (from vertex i to vertex i + 1) lies within EPS
+     * of that edge or one of its neighbours
+     */
+    private boolean nearEdges(int i, double x, double y) {
+        int n = xs.length;
+        for (int k = i + n - 1; k <= i + n + 1; ++k) {
+            int a = k % n, b = (k + 1) % n;
+            if (Utilities.onEdge(x, y, xs[a], ys[a], xs[b], ys[b]))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return number of vertices of the fan
+     */
+    public int getNumVertices() {
+        return xs.length;
+    }
+
+    @Override
+    public boolean isIntersected(Shape shape) throws OperationNotSupportedException {
+        if (shape instanceof Point)
+            return contains(((Point) shape).x, ((Point) shape).y);
+
+        return super.isIntersected(shape);
+    }
+
+    @Override
+    public boolean contains(Shape shape) throws OperationNotSupportedException {
+        if (shape instanceof Point)
+            return contains(((Point) shape).x, ((Point) shape).y);
+
+        return super.contains(shape);
+    }
+}
@@ -63,13 +63,61 @@ public class Polygon implements Shape {
     /**
      * returns the area, which is half the determinant
      */
-    private double area() {
+    double area() {
         double area = 0.0;
         for (int i = 0; i < points.length - 1; ++i)
             area += points[i].x * points[i + 1].y - points[i].y * points[i + 1].x;
         return area / 2.0;
     }
 
+    /**
+     * Check that the polygon has no reflex vertex and winds once around its interior, where
+     * x and y directions of its edges change sign at most twice
+     */
+    public boolean isConvex() {
+        validate();
+
+        int n = points.length - 1;
+        int signX = 0, signY = 0, flipsX = 0, flipsY = 0;
+        for (int i = 0; i <= n; ++i) {
+            Point a = points[i % n], b = points[(i + 1) % n], c = points[(i + 2) % n];
+            if (i < n && new Vector(a, b).cross(new Vector(a, c)) < -EPS)
+                return false;
+
+            int sx = b.x - a.x > EPS ? 1 : b.x - a.x < -EPS ? -1 : 0;
+            if (sx != 0) {
+                if (signX != 0 && sx != signX)
+                    ++flipsX;
+                signX = sx;
+            }
+            int sy = b.y - a.y > EPS ? 1 : b.y - a.y < -EPS ? -1 : 0;
+            if (sy != 0) {
+                if (signY != 0 && sy != signY)
+                    ++flipsY;
+                signY = sy;
+            }
+        }
+        return flipsX <= 2 && flipsY <= 2;
+    }
+
+    /**
+     * @return convex hull of the vertices of polygon in counter-clockwise order
+     */
+    public Polygon convexHull() {
+        validate();
+
+        return new Polygon(Utilities.convexHull(Arrays.copyOf(points, points.length - 1)));
+    }
+
+    /**
+     * Set edge i from points[i] to points[i + 1] into segment. Subclasses may return
+     * their own cached edge instead, which callers must not modify.
+     */
+    protected LineSegment edge(int i, LineSegment segment) {
+        segment.set(points[i], points[i + 1]);
+        return segment;
+    }
+
     @Override
     public Rectangle getMBR() {
         validate();
@@ -88,12 +136,8 @@ public class Polygon implements Shape {
         LineSegment edge = new LineSegment();
         double minDistance = Double.MAX_VALUE;
 
-        for (int i = 0; i < points.length - 1; ++i) {
-            edge.set(this.points[i], this.points[i + 1]);
-
-
-            minDistance = Math.min(minDistance, edge.distanceTo(p));
-        }
+        for (int i = 0; i < points.length - 1; ++i)
+            minDistance = Math.min(minDistance, edge(i, edge).distanceTo(p));
 
         return minDistance;
     }
@@ -118,35 +162,14 @@ public class Polygon implements Shape {
     }
 
 
-    private boolean isPolygonIntersection(Polygon polygon) throws OperationNotSupportedException {
-
-        /* Iterate over edges for checking intersection of edges without any points intersection */
-        LineSegment edge = new LineSegment();
-        for (int i = 0; i < points.length - 1; ++i) {
-            edge.set(this.points[i], this.points[i + 1]);
-
-
-            if (polygon.isIntersected(edge))
-                return true;
-        }
-
-        /*
-         * Check if polygon is fully inside the invoker polygon. Thus, no edge intersection
-         * Iterate over polygon's points and check if any point is inside the invoker polygon
-         */
-        for (int i = 0; i < polygon.points.length - 1; ++i)
-            if (this.isIntersected(polygon.points[i]))
-                return true;
+    private boolean isPolygonIntersection(Polygon polygon) {
+        polygon.validate();
 
         /*
-         * Check if invoker polygon is fully inside this polygon. Thus, no edge intersection
-         * Iterate over invoker polygon points and check if any point is inside polygon
+         * Sweep line over edges of both polygons then check if one polygon is fully inside
+         * the other one. Thus, no edge intersection
          */
-        for (int i = 0; i < points.length - 1; ++i)
-            if (polygon.isIntersected(points[i]))
-                return true;
-
-        return false;
+        return Utilities.polygonPolygonIntersection(this, polygon);
     }
 
     @Override
@@ -232,11 +255,9 @@ public class Polygon implements Shape {
     private boolean containsPolygon(Polygon poly) throws OperationNotSupportedException {
         /* Iterate over edges to check that all of them are inside this polygon */
         LineSegment edge = new LineSegment();
-        for (int i = 0; i < poly.points.length - 1; ++i) {
-            edge.set(poly.points[i], poly.points[i + 1]);
-            if (!this.containsLineSegment(edge))
+        for (int i = 0; i < poly.points.length - 1; ++i)
+            if (!this.containsLineSegment(poly.edge(i, edge)))
                 return false;
-        }
 
         return true;
     }
@@ -262,8 +283,7 @@ public class Polygon implements Shape {
         /* Calculate intersection points between line segment and polygon's edges */
         LineSegment edge = new LineSegment();
         for (int i = 0; i < points.length - 1; ++i) {
-            edge.set(points[i], points[i + 1]);
-            Point p = edge.getIntersectionPointIfExist(lineSegment);
+            Point p = edge(i, edge).getIntersectionPointIfExist(lineSegment);
             if (p != null)
                 treeSet.add(p);
         }
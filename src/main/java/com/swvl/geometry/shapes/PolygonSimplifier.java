@@ -0,0 +1,359 @@
+package com.swvl.geometry.shapes;
+
+import com.swvl.geometry.SegmentSweep;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Simplification of polygons within a distance tolerance keeping them simple:
+ * <ul>
+ * <li>{@link #simplify(Polygon, double)} runs Douglas-Peucker on the ring, and</li>
+ * <li>{@link #outerRing(Polygon, double)} and {@link #innerRing(Polygon, double)} run
+ * Visvalingam-Whyatt constrained to remove only reflex or only convex vertices, so the
+ * simplified ring contains or is contained in the polygon.</li>
+ * </ul>
+ * Every vertex of a simplified ring is a vertex of the polygon and every removed vertex is
+ * within the tolerance of the edge replacing it.
+ *
+ * @author Hatem Morgan
+ */
+public final class PolygonSimplifier {
+
+    private PolygonSimplifier() {
+    }
+
+    /**
+     * Douglas-Peucker simplification of the ring of polygon. If the simplified ring is not
+     * simple, simplification is repeated with half the tolerance until it is, falling back to
+     * the polygon itself.
+     *
+     * @param tolerance maximum distance between a removed vertex and the simplified ring
+     * @return simplified polygon in counter-clockwise order
+     */
+    public static Polygon simplify(Polygon polygon, double tolerance) {
+        polygon.validate();
+        double[] xs = xs(polygon), ys = ys(polygon);
+
+        for (double t = tolerance; t > Shape.EPS; t /= 2) {
+            boolean[] keep = douglasPeucker(xs, ys, t);
+
+            int size = 0;
+            for (boolean k : keep)
+                if (k)
+                    ++size;
+            double[] keptXs = new double[size], keptYs = new double[size];
+            for (int i = 0, j = 0; i < keep.length; ++i)
+                if (keep[i]) {
+                    keptXs[j] = xs[i];
+                    keptYs[j++] = ys[i];
+                }
+
+            if (area(keptXs, keptYs, size) > Shape.EPS && !SegmentSweep.selfIntersects(keptXs, keptYs, size))
+                return ring(xs, ys, keep);
+        }
+        return polygon.clone();
+    }
+
+    /**
+     * Simplified ring containing the polygon whose edges are within the tolerance of the
+     * edges of polygon
+     */
+    public static Polygon outerRing(Polygon polygon, double tolerance) {
+        return constrainedRing(polygon, tolerance, true);
+    }
+
+    /**
+     * Simplified ring contained in the polygon whose edges are within the tolerance of the
+     * edges of polygon
+     */
+    public static Polygon innerRing(Polygon polygon, double tolerance) {
+        return constrainedRing(polygon, tolerance, false);
+    }
+
+    private static double[] xs(Polygon polygon) {
+        double[] xs = new double[polygon.points.length - 1];
+        for (int i = 0; i < xs.length; ++i)
+            xs[i] = polygon.points[i].x;
+        return xs;
+    }
+
+    private static double[] ys(Polygon polygon) {
+        double[] ys = new double[polygon.points.length - 1];
+        for (int i = 0; i < ys.length; ++i)
+            ys[i] = polygon.points[i].y;
+        return ys;
+    }
+
+    /**
+     * Closed polygon of the kept vertices
+     */
+    private static Polygon ring(double[] xs, double[] ys, boolean[] keep) {
+        int size = 0;
+        for (boolean k : keep)
+            if (k)
+                ++size;
+
+        Point[] points = new Point[size + 1];
+        for (int i = 0, j = 0; i < keep.length; ++i)
+            if (keep[i])
+                points[j++] = new Point(xs[i], ys[i]);
+        points[size] = points[0].clone();
+        return new Polygon(points);
+    }
+
+    /**
+     * Vertices kept by Douglas-Peucker where the ring is first split at vertex 0 and the
+     * vertex farthest from it, which are always kept with the farthest vertex from the chord
+     * between them
+     */
+    private static boolean[] douglasPeucker(double[] xs, double[] ys, double tolerance) {
+        int n = xs.length;
+        boolean[] keep = new boolean[n];
+
+        int far = 0;
+        double farthest = -1;
+        for (int i = 1; i < n; ++i) {
+            double d = (xs[i] - xs[0]) * (xs[i] - xs[0]) + (ys[i] - ys[0]) * (ys[i] - ys[0]);
+            if (d > farthest) {
+                farthest = d;
+                far = i;
+            }
+        }
+        keep[0] = true;
+        keep[far] = true;
+
+        /* Ranges of vertices between two kept vertices where vertex n is vertex 0 */
+        int[] stack = new int[2 * n + 4];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = far;
+        stack[top++] = far;
+        stack[top++] = n;
+
+        boolean forced = false;
+        while (top > 0) {
+            int last = stack[--top], first = stack[--top];
+            if (last - first < 2)
+                continue;
+
+            int split = -1;
+            double max = -1;
+            for (int i = first + 1; i < last; ++i) {
+                double d = distance(xs[i], ys[i], xs[first], ys[first], xs[last % n], ys[last % n]);
+                if (d > max) {
+                    max = d;
+                    split = i;
+                }
+            }
+
+            /* The first split is kept whatever its distance, so the ring has at least 3 vertices */
+            if (max > tolerance || !forced) {
+                forced = true;
+                keep[split] = true;
+                stack[top++] = first;
+                stack[top++] = split;
+                stack[top++] = split;
+                stack[top++] = last;
+            }
+        }
+        return keep;
+    }
+
+    /**
+     * Visvalingam-Whyatt removing first the vertex of smallest effective area. A vertex is
+     * removed only if:
+     * <ul>
+     * <li>it is reflex for the outer ring or convex for the inner ring, so that the removed
+     * triangle is added to or cut from the ring,</li>
+     * <li>the original vertices it replaces are within tolerance of the new edge, and</li>
+     * <li>no remaining vertex lies in the removed triangle, so that the ring stays simple.</li>
+     * </ul>
+     */
+    private static Polygon constrainedRing(Polygon polygon, double tolerance, boolean outer) {
+        polygon.validate();
+        double[] xs = xs(polygon), ys = ys(polygon);
+        int n = xs.length;
+
+        int[] prev = new int[n], next = new int[n], version = new int[n];
+        for (int i = 0; i < n; ++i) {
+            prev[i] = (i + n - 1) % n;
+            next[i] = (i + 1) % n;
+        }
+        boolean[] keep = new boolean[n];
+        Arrays.fill(keep, true);
+        int size = n;
+
+        VertexGrid grid = new VertexGrid(xs, ys);
+        PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>();
+        for (int i = 0; i < n; ++i)
+            queue.add(new Candidate(i, version[i], effectiveArea(xs, ys, prev[i], i, next[i])));
+
+        while (size > 3 && !queue.isEmpty()) {
+            Candidate candidate = queue.poll();
+            int v = candidate.vertex;
+            if (!keep[v] || candidate.version != version[v])
+                continue;
+
+            int p = prev[v], q = next[v];
+            double turn = cross(xs, ys, p, v, q);
+            if (outer ? turn > 0 : turn < 0)
+                continue;
+            if (!withinTolerance(xs, ys, p, q, tolerance) || !grid.triangleIsEmpty(p, v, q))
+                continue;
+
+            keep[v] = false;
+            grid.remove(v);
+            --size;
+            next[p] = q;
+            prev[q] = p;
+            for (int u : new int[]{p, q})
+                queue.add(new Candidate(u, ++version[u], effectiveArea(xs, ys, prev[u], u, next[u])));
+        }
+        return ring(xs, ys, keep);
+    }
+
+    /**
+     * Check if all vertices between first and last along the ring are within tolerance of
+     * the edge between them
+     */
+    private static boolean withinTolerance(double[] xs, double[] ys, int first, int last, double tolerance) {
+        for (int i = (first + 1) % xs.length; i != last; i = (i + 1) % xs.length)
+            if (distance(xs[i], ys[i], xs[first], ys[first], xs[last], ys[last]) > tolerance)
+                return false;
+        return true;
+    }
+
+    private static double effectiveArea(double[] xs, double[] ys, int p, int v, int q) {
+        return Math.abs(cross(xs, ys, p, v, q)) / 2;
+    }
+
+    /**
+     * Cross product of pv and pq which is positive if v, q turn left (convex vertex in a
+     * counter-clockwise ring)
+     */
+    private static double cross(double[] xs, double[] ys, int p, int v, int q) {
+        return (xs[v] - xs[p]) * (ys[q] - ys[v]) - (ys[v] - ys[p]) * (xs[q] - xs[v]);
+    }
+
+    private static double distance(double x, double y, double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1, dy = y2 - y1;
+        double length2 = dx * dx + dy * dy;
+        double t = length2 == 0 ? 0 : ((x - x1) * dx + (y - y1) * dy) / length2;
+        t = Math.max(0, Math.min(1, t));
+        return Math.hypot(x1 + t * dx - x, y1 + t * dy - y);
+    }
+
+    private static double area(double[] xs, double[] ys, int n) {
+        double area = 0;
+        for (int i = 0, j = n - 1; i < n; j = i++)
+            area += xs[j] * ys[i] - ys[j] * xs[i];
+        return area / 2;
+    }
+
+    /**
+     * Vertex with its effective area when queued, stale once the version of the vertex changes
+     */
+    private static class Candidate implements Comparable<Candidate> {
+        final int vertex;
+        final int version;
+        final double area;
+
+        Candidate(int vertex, int version, double area) {
+            this.vertex = vertex;
+            this.version = version;
+            this.area = area;
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            return Double.compare(area, o.area);
+        }
+    }
+
+    /**
+     * Uniform grid of remaining vertices of a ring for finding vertices inside a triangle
+     * without scanning the whole ring
+     */
+    private static class VertexGrid {
+        private final double[] xs, ys;
+        private final double minX, minY, cellWidth, cellHeight;
+        private final int columns, rows;
+
+        /* Doubly linked list of vertices in every cell */
+        private final int[] head, nextInCell, prevInCell;
+
+        VertexGrid(double[] xs, double[] ys) {
+            this.xs = xs;
+            this.ys = ys;
+            int n = xs.length;
+
+            double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+            for (int i = 0; i < n; ++i) {
+                x0 = Math.min(x0, xs[i]);
+                y0 = Math.min(y0, ys[i]);
+                x1 = Math.max(x1, xs[i]);
+                y1 = Math.max(y1, ys[i]);
+            }
+            minX = x0;
+            minY = y0;
+            columns = rows = Math.max(1, (int) Math.sqrt(n));
+            cellWidth = Math.max((x1 - x0) / columns, Shape.EPS);
+            cellHeight = Math.max((y1 - y0) / rows, Shape.EPS);
+
+            head = new int[columns * rows];
+            Arrays.fill(head, -1);
+            nextInCell = new int[n];
+            prevInCell = new int[n];
+            for (int i = 0; i < n; ++i) {
+                int cell = row(ys[i]) * columns + column(xs[i]);
+                prevInCell[i] = -1;
+                nextInCell[i] = head[cell];
+                if (head[cell] >= 0)
+                    prevInCell[head[cell]] = i;
+                head[cell] = i;
+            }
+        }
+
+        private int column(double x) {
+            return Math.max(0, Math.min(columns - 1, (int) ((x - minX) / cellWidth)));
+        }
+
+        private int row(double y) {
+            return Math.max(0, Math.min(rows - 1, (int) ((y - minY) / cellHeight)));
+        }
+
+        void remove(int v) {
+            int cell = row(ys[v]) * columns + column(xs[v]);
+            if (prevInCell[v] >= 0)
+                nextInCell[prevInCell[v]] = nextInCell[v];
+            else
+                head[cell] = nextInCell[v];
+            if (nextInCell[v] >= 0)
+                prevInCell[nextInCell[v]] = prevInCell[v];
+        }
+
+        /**
+         * Check that no vertex other than the corners lies inside or on the triangle (p, v, q)
+         */
+        boolean triangleIsEmpty(int p, int v, int q) {
+            double x0 = Math.min(xs[p], Math.min(xs[v], xs[q])), x1 = Math.max(xs[p], Math.max(xs[v], xs[q]));
+            double y0 = Math.min(ys[p], Math.min(ys[v], ys[q])), y1 = Math.max(ys[p], Math.max(ys[v], ys[q]));
+            double area = cross(xs, ys, p, v, q);
+
+            for (int r = row(y0 - Shape.EPS); r <= row(y1 + Shape.EPS); ++r)
+                for (int c = column(x0 - Shape.EPS); c <= column(x1 + Shape.EPS); ++c)
+                    for (int w = head[r * columns + c]; w >= 0; w = nextInCell[w]) {
+                        if (w == p || w == v || w == q)
+                            continue;
+
+                        /* Signs of w against the edges of the triangle agree with its orientation */
+                        double a = cross(xs, ys, p, v, w), b = cross(xs, ys, v, q, w), d = cross(xs, ys, q, p, w);
+                        if (area >= 0 ? a >= -Shape.EPS && b >= -Shape.EPS && d >= -Shape.EPS
+                                : a <= Shape.EPS && b <= Shape.EPS && d <= Shape.EPS)
+                            return false;
+                    }
+            return true;
+        }
+    }
+}
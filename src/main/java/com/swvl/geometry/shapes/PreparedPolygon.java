@@ -0,0 +1,178 @@
+package com.swvl.geometry.shapes;
+
+import com.swvl.geometry.Utilities;
+
+import javax.naming.OperationNotSupportedException;
+
+/**
+ * Polygon prepared for repeated point queries. The y-range of the polygon is split into
+ * horizontal buckets of equal height, and every bucket holds the coordinates of the edges
+ * whose y-range (widened by EPS) overlaps it. A query locates its bucket arithmetically and
+ * touches only the few edges crossing its y-coordinate:
+ * <ul>
+ * <li>a point within EPS of one of these edges is on the boundary, and</li>
+ * <li>otherwise it is inside if a ray from it towards +x crosses an odd number of them.</li>
+ * </ul>
+ * Points on the boundary are contained as in
+ * {@link Utilities#polygonPointIntersection(Point, Polygon)}.
+ * <p>
+ * Edges are copied in bucket order into a single array when the polygon is prepared, thus
+ * queries scan contiguous memory and never allocate. The number of buckets starts at the
+ * number of edges and is halved while edges would be copied more than MAX_COPIES times on
+ * average, which bounds the memory of the index to O(n) even for polygons of long edges.
+ * Points of the polygon must not be modified after preparation.
+ *
+ * @author Hatem Morgan
+ */
+public class PreparedPolygon extends Polygon {
+    /* Maximum average number of buckets holding an edge */
+    private static final int MAX_COPIES = 8;
+
+    /* Bounds of polygon */
+    private final double boundMinX, boundMinY, boundMaxX, boundMaxY;
+
+    private final int numBuckets;
+    private final double bucketHeight;
+
+    /* Edges of bucket b are entries bucketStart[b] until bucketStart[b + 1] */
+    private final int[] bucketStart;
+
+    /* Coordinates x1, y1, x2, y2 of every entry */
+    private final double[] edges;
+
+    public PreparedPolygon(Polygon polygon) {
+        super(polygon.points);
+        validate();
+
+        double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+        for (Point point : points) {
+            x0 = Math.min(x0, point.x);
+            y0 = Math.min(y0, point.y);
+            x1 = Math.max(x1, point.x);
+            y1 = Math.max(y1, point.y);
+        }
+        boundMinX = x0;
+        boundMinY = y0;
+        boundMaxX = x1;
+        boundMaxY = y1;
+
+        int n = points.length - 1;
+        int buckets = n;
+        while (buckets > 1 && numEntries(buckets) > (long) MAX_COPIES * n)
+            buckets /= 2;
+        numBuckets = buckets;
+        bucketHeight = (boundMaxY - boundMinY) / numBuckets;
+
+        /* Counting sort of edges into buckets */
+        bucketStart = new int[numBuckets + 1];
+        for (int i = 0; i < n; ++i)
+            for (int b = firstBucket(i); b <= lastBucket(i); ++b)
+                ++bucketStart[b + 1];
+        for (int b = 0; b < numBuckets; ++b)
+            bucketStart[b + 1] += bucketStart[b];
+
+        int[] next = new int[numBuckets];
+        System.arraycopy(bucketStart, 0, next, 0, numBuckets);
+        edges = new double[4 * bucketStart[numBuckets]];
+        for (int i = 0; i < n; ++i)
+            for (int b = firstBucket(i); b <= lastBucket(i); ++b) {
+                int entry = 4 * next[b]++;
+                edges[entry] = points[i].x;
+                edges[entry + 1] = points[i].y;
+                edges[entry + 2] = points[i + 1].x;
+                edges[entry + 3] = points[i + 1].y;
+            }
+    }
+
+    /**
+     * Number of entries of an index of the given number of buckets
+     */
+    private long numEntries(int buckets) {
+        double height = (boundMaxY - boundMinY) / buckets;
+        long entries = 0;
+        for (int i = 0; i < points.length - 1; ++i) {
+            double lo = Math.min(points[i].y, points[i + 1].y) - EPS;
+            double hi = Math.max(points[i].y, points[i + 1].y) + EPS;
+            entries += bucket(hi, boundMinY, height, buckets) - bucket(lo, boundMinY, height, buckets) + 1;
+        }
+        return entries;
+    }
+
+    private int firstBucket(int edge) {
+        return bucketOf(Math.min(points[edge].y, points[edge + 1].y) - EPS);
+    }
+
+    private int lastBucket(int edge) {
+        return bucketOf(Math.max(points[edge].y, points[edge + 1].y) + EPS);
+    }
+
+    private int bucketOf(double y) {
+        return bucket(y, boundMinY, bucketHeight, numBuckets);
+    }
+
+    private static int bucket(double y, double minY, double height, int buckets) {
+        int b = (int) ((y - minY) / height);
+        if (b < 0)
+            return 0;
+        return b < buckets ? b : buckets - 1;
+    }
+
+    /**
+     * @return true if the point is inside the polygon or on its boundary
+     */
+    public boolean contains(double x, double y) {
+        if (x < boundMinX - EPS || x > boundMaxX + EPS || y < boundMinY - EPS || y > boundMaxY + EPS)
+            return false;
+
+        int b = bucketOf(y);
+        boolean inside = false;
+        for (int e = 4 * bucketStart[b], end = 4 * bucketStart[b + 1]; e < end; e += 4) {
+            double x1 = edges[e], y1 = edges[e + 1], x2 = edges[e + 2], y2 = edges[e + 3];
+
+            if (Utilities.onEdge(x, y, x1, y1, x2, y2))
+                return true;
+
+            /* Half-open rule counts a vertex on the ray once */
+            if ((y1 > y) != (y2 > y) && x < x1 + (y - y1) * (x2 - x1) / (y2 - y1))
+                inside = !inside;
+        }
+        return inside;
+    }
+
+    /**
+     * @return true if the point is within EPS of an edge of the polygon
+     */
+    public boolean onBoundary(double x, double y) {
+        if (x < boundMinX - EPS || x > boundMaxX + EPS || y < boundMinY - EPS || y > boundMaxY + EPS)
+            return false;
+
+        int b = bucketOf(y);
+        for (int e = 4 * bucketStart[b], end = 4 * bucketStart[b + 1]; e < end; e += 4)
+            if (Utilities.onEdge(x, y, edges[e], edges[e + 1], edges[e + 2], edges[e + 3]))
+                return true;
+        return false;
+    }
+
+    /**
+     * @return number of buckets of the edge index
+     */
+    public int getNumBuckets() {
+        return numBuckets;
+    }
+
+    @Override
+    public boolean isIntersected(Shape shape) throws OperationNotSupportedException {
+        if (shape instanceof Point)
+            return contains(((Point) shape).x, ((Point) shape).y);
+
+        return super.isIntersected(shape);
+    }
+
+    @Override
+    public boolean contains(Shape shape) throws OperationNotSupportedException {
+        if (shape instanceof Point)
+            return contains(((Point) shape).x, ((Point) shape).y);
+
+        return super.contains(shape);
+    }
+}
@@ -0,0 +1,268 @@
+package com.swvl.geometry.shapes;
+
+import com.swvl.geometry.Utilities;
+
+import javax.naming.OperationNotSupportedException;
+
+/**
+ * Polygon approximated by a uniform grid over its MBR for point queries. Every cell is marked
+ * as lying fully inside the polygon, fully outside it or crossing its boundary:
+ * <ul>
+ * <li>a query falling in an inside or outside cell is answered by one array lookup, and</li>
+ * <li>a query falling in a boundary cell is refined by the exact
+ * {@link Utilities#polygonPointIntersection(double, double, double[], double[], int)}.</li>
+ * </ul>
+ * A cell is a boundary cell if any point of it lies within EPS of an edge, thus points on the
+ * boundary are always refined and contained as in
+ * {@link Utilities#polygonPointIntersection(Point, Polygon)}.
+ * <p>
+ * A cell takes one byte, so the grid of c columns and r rows takes c * r bytes besides the
+ * coordinates of the polygon. Points of the polygon must not be modified after rasterization.
+ *
+ * @author Hatem Morgan
+ */
+public class RasterizedPolygon extends Polygon {
+    public static final byte OUTSIDE = 0;
+    public static final byte INSIDE = 1;
+    public static final byte BOUNDARY = 2;
+
+    /* Bounds of polygon */
+    private final double boundMinX, boundMinY, boundMaxX, boundMaxY;
+
+    private final int columns;
+    private final int rows;
+    private final double cellWidth;
+    private final double cellHeight;
+
+    /* State of cell (column, row) at index row * columns + column */
+    private final byte[] cells;
+    private int numBoundaryCells;
+
+    /* Coordinates of vertices for refinement in boundary cells */
+    private final double[] xs;
+    private final double[] ys;
+
+    /**
+     * @param columns number of cells along x-axis
+     * @param rows    number of cells along y-axis
+     */
+    public RasterizedPolygon(Polygon polygon, int columns, int rows) {
+        super(polygon.points);
+        validate();
+
+        if (columns < 1 || rows < 1 || (long) columns * rows > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Grid must have between 1 and 2^31 - 1 cells");
+
+        int n = points.length - 1;
+        xs = new double[n];
+        ys = new double[n];
+        double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+        for (int i = 0; i < n; ++i) {
+            xs[i] = points[i].x;
+            ys[i] = points[i].y;
+            x0 = Math.min(x0, xs[i]);
+            y0 = Math.min(y0, ys[i]);
+            x1 = Math.max(x1, xs[i]);
+            y1 = Math.max(y1, ys[i]);
+        }
+        boundMinX = x0;
+        boundMinY = y0;
+        boundMaxX = x1;
+        boundMaxY = y1;
+
+        this.columns = columns;
+        this.rows = rows;
+        cellWidth = (boundMaxX - boundMinX) / columns;
+        cellHeight = (boundMaxY - boundMinY) / rows;
+        cells = new byte[columns * rows];
+
+        for (int i = 0; i < n; ++i)
+            markEdge(xs[i], ys[i], xs[(i + 1) % n], ys[(i + 1) % n]);
+        classifyRuns();
+    }
+
+    /**
+     * Rasterize the polygon into the largest grid of roughly square cells taking at most
+     * the given number of bytes
+     */
+    public static RasterizedPolygon withMemoryBudget(Polygon polygon, long bytes) {
+        if (bytes < 1)
+            throw new IllegalArgumentException("Memory budget must be at least one byte");
+
+        Rectangle mbr = bounds(polygon);
+        double width = mbr.maxPoint.x - mbr.minPoint.x, height = mbr.maxPoint.y - mbr.minPoint.y;
+        long cells = Math.min(bytes, Integer.MAX_VALUE);
+
+        int columns = (int) Math.max(1, Math.min(cells, Math.floor(Math.sqrt(cells * width / height))));
+        int rows = (int) Math.max(1, cells / columns);
+        return new RasterizedPolygon(polygon, columns, rows);
+    }
+
+    /**
+     * Rasterize the polygon into a grid whose cells are at most cellSize wide and high
+     */
+    public static RasterizedPolygon withCellSize(Polygon polygon, double cellSize) {
+        if (!(cellSize > 0))
+            throw new IllegalArgumentException("Cell size must be positive");
+
+        Rectangle mbr = bounds(polygon);
+        double columns = Math.max(1, Math.ceil((mbr.maxPoint.x - mbr.minPoint.x) / cellSize));
+        double rows = Math.max(1, Math.ceil((mbr.maxPoint.y - mbr.minPoint.y) / cellSize));
+        if (columns * rows > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Cell size is too small for the polygon");
+        return new RasterizedPolygon(polygon, (int) columns, (int) rows);
+    }
+
+    /**
+     * Bounds of points of polygon computed directly as {@link Polygon#getMBR()} starts its
+     * maximum at Double.MIN_VALUE
+     */
+    private static Rectangle bounds(Polygon polygon) {
+        double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+        for (Point point : polygon.points) {
+            x0 = Math.min(x0, point.x);
+            y0 = Math.min(y0, point.y);
+            x1 = Math.max(x1, point.x);
+            y1 = Math.max(y1, point.y);
+        }
+        return new Rectangle(x0, y0, x1, y1);
+    }
+
+    /**
+     * Mark as boundary every cell holding a point within EPS of edge (x1, y1)-(x2, y2) by
+     * clipping the edge to the band of each row it spans widened by EPS
+     */
+    private void markEdge(double x1, double y1, double x2, double y2) {
+        int firstRow = row(Math.min(y1, y2) - EPS), lastRow = row(Math.max(y1, y2) + EPS);
+
+        for (int r = firstRow; r <= lastRow; ++r) {
+            double bandMinY = boundMinY + r * cellHeight - EPS, bandMaxY = boundMinY + (r + 1) * cellHeight + EPS;
+
+            double minX, maxX;
+            if (y1 == y2) {
+                minX = Math.min(x1, x2);
+                maxX = Math.max(x1, x2);
+            } else {
+                /* Parameters of edge at both lines of band clipped to the edge */
+                double t1 = (bandMinY - y1) / (y2 - y1), t2 = (bandMaxY - y1) / (y2 - y1);
+                double tMin = Math.max(0, Math.min(t1, t2)), tMax = Math.min(1, Math.max(t1, t2));
+                if (tMin > tMax)
+                    continue;
+                minX = Math.min(x1 + tMin * (x2 - x1), x1 + tMax * (x2 - x1));
+                maxX = Math.max(x1 + tMin * (x2 - x1), x1 + tMax * (x2 - x1));
+            }
+
+            int end = column(maxX + EPS);
+            for (int c = column(minX - EPS); c <= end; ++c) {
+                int cell = r * columns + c;
+                if (cells[cell] != BOUNDARY) {
+                    cells[cell] = BOUNDARY;
+                    ++numBoundaryCells;
+                }
+            }
+        }
+    }
+
+    /**
+     * No edge crosses a run of non-boundary cells in a row, thus testing the center of its
+     * first cell classifies the whole run
+     */
+    private void classifyRuns() {
+        int n = xs.length;
+        for (int r = 0; r < rows; ++r) {
+            double y = boundMinY + (r + 0.5) * cellHeight;
+            byte state = BOUNDARY;
+            for (int c = 0, cell = r * columns; c < columns; ++c, ++cell) {
+                if (cells[cell] == BOUNDARY) {
+                    state = BOUNDARY;
+                    continue;
+                }
+                if (state == BOUNDARY) {
+                    double x = boundMinX + (c + 0.5) * cellWidth;
+                    state = Utilities.polygonPointIntersection(x, y, xs, ys, n) ? INSIDE : OUTSIDE;
+                }
+                cells[cell] = state;
+            }
+        }
+    }
+
+    private int column(double x) {
+        int c = (int) Math.floor((x - boundMinX) / cellWidth);
+        if (c < 0)
+            return 0;
+        return c < columns ? c : columns - 1;
+    }
+
+    private int row(double y) {
+        int r = (int) Math.floor((y - boundMinY) / cellHeight);
+        if (r < 0)
+            return 0;
+        return r < rows ? r : rows - 1;
+    }
+
+    /**
+     * @return true if the point is inside the polygon or on its boundary
+     */
+    public boolean contains(double x, double y) {
+        if (x < boundMinX - EPS || x > boundMaxX + EPS || y < boundMinY - EPS || y > boundMaxY + EPS)
+            return false;
+
+        byte state = cells[row(y) * columns + column(x)];
+        if (state == BOUNDARY)
+            return Utilities.polygonPointIntersection(x, y, xs, ys, xs.length);
+        return state == INSIDE;
+    }
+
+    /**
+     * @return OUTSIDE, INSIDE or BOUNDARY state of the cell holding the point where points
+     * outside the grid are OUTSIDE
+     */
+    public byte getCell(double x, double y) {
+        if (x < boundMinX - EPS || x > boundMaxX + EPS || y < boundMinY - EPS || y > boundMaxY + EPS)
+            return OUTSIDE;
+        return cells[row(y) * columns + column(x)];
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public double getCellWidth() {
+        return cellWidth;
+    }
+
+    public double getCellHeight() {
+        return cellHeight;
+    }
+
+    public int getNumBoundaryCells() {
+        return numBoundaryCells;
+    }
+
+    /**
+     * @return number of bytes taken by the grid
+     */
+    public long getMemoryUsage() {
+        return cells.length;
+    }
+
+    @Override
+    public boolean isIntersected(Shape shape) throws OperationNotSupportedException {
+        if (shape instanceof Point)
+            return contains(((Point) shape).x, ((Point) shape).y);
+
+        return super.isIntersected(shape);
+    }
+
+    @Override
+    public boolean contains(Shape shape) throws OperationNotSupportedException {
+        if (shape instanceof Point)
+            return contains(((Point) shape).x, ((Point) shape).y);
+
+        return super.contains(shape);
+    }
+}
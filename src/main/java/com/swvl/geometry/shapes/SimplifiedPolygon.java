@@ -0,0 +1,116 @@
+package com.swvl.geometry.shapes;
+
+import com.swvl.geometry.Utilities;
+
+import javax.naming.OperationNotSupportedException;
+
+/**
+ * Polygon bracketed by simplified rings of {@link PolygonSimplifier} for point queries. The
+ * outer ring contains the polygon and the inner ring is contained in it, thus:
+ * <ul>
+ * <li>a point outside the outer ring is outside the polygon,</li>
+ * <li>a point inside the inner ring is inside the polygon, and</li>
+ * <li>only a point in the band between both rings, which is within the tolerance of the
+ * boundary, is tested against all edges of the polygon.</li>
+ * </ul>
+ * Points on the boundary are contained as in
+ * {@link Utilities#polygonPointIntersection(Point, Polygon)}. Points of the polygon must not
+ * be modified after simplification.
+ *
+ * @author Hatem Morgan
+ */
+public class SimplifiedPolygon extends Polygon {
+    private final Polygon inner;
+    private final Polygon outer;
+
+    /* Coordinates of vertices of outer ring, inner ring and polygon */
+    private final double[] outerXs, outerYs, innerXs, innerYs, xs, ys;
+
+    /* Bounds of outer ring */
+    private final double boundMinX, boundMinY, boundMaxX, boundMaxY;
+
+    /**
+     * @param tolerance maximum distance between the polygon and its simplified rings
+     */
+    public SimplifiedPolygon(Polygon polygon, double tolerance) {
+        super(polygon.points);
+        validate();
+
+        outer = PolygonSimplifier.outerRing(this, tolerance);
+        inner = PolygonSimplifier.innerRing(this, tolerance);
+
+        int n = points.length - 1;
+        xs = new double[n];
+        ys = new double[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = points[i].x;
+            ys[i] = points[i].y;
+        }
+
+        outerXs = new double[outer.points.length - 1];
+        outerYs = new double[outerXs.length];
+        double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+        for (int i = 0; i < outerXs.length; ++i) {
+            outerXs[i] = outer.points[i].x;
+            outerYs[i] = outer.points[i].y;
+            x0 = Math.min(x0, outerXs[i]);
+            y0 = Math.min(y0, outerYs[i]);
+            x1 = Math.max(x1, outerXs[i]);
+            y1 = Math.max(y1, outerYs[i]);
+        }
+        boundMinX = x0;
+        boundMinY = y0;
+        boundMaxX = x1;
+        boundMaxY = y1;
+
+        innerXs = new double[inner.points.length - 1];
+        innerYs = new double[innerXs.length];
+        for (int i = 0; i < innerXs.length; ++i) {
+            innerXs[i] = inner.points[i].x;
+            innerYs[i] = inner.points[i].y;
+        }
+    }
+
+    /**
+     * @return true if the point is inside the polygon or on its boundary
+     */
+    public boolean contains(double x, double y) {
+        if (x < boundMinX - EPS || x > boundMaxX + EPS || y < boundMinY - EPS || y > boundMaxY + EPS)
+            return false;
+        if (!Utilities.polygonPointIntersection(x, y, outerXs, outerYs, outerXs.length))
+            return false;
+        if (Utilities.polygonPointIntersection(x, y, innerXs, innerYs, innerXs.length))
+            return true;
+        return Utilities.polygonPointIntersection(x, y, xs, ys, xs.length);
+    }
+
+    /**
+     * @return simplified ring containing the polygon
+     */
+    public Polygon getOuterRing() {
+        return outer;
+    }
+
+    /**
+     * @return simplified ring contained in the polygon
+     */
+    public Polygon getInnerRing() {
+        return inner;
+    }
+
+    @Override
+    public boolean isIntersected(Shape shape) throws OperationNotSupportedException {
+        if (shape instanceof Point)
+            return contains(((Point) shape).x, ((Point) shape).y);
+
+        return super.isIntersected(shape);
+    }
+
+    @Override
+    public boolean contains(Shape shape) throws OperationNotSupportedException {
+        if (shape instanceof Point)
+            return contains(((Point) shape).x, ((Point) shape).y);
+
+        return super.contains(shape);
+    }
+}
@@ -0,0 +1,132 @@
+package com.swvl.geometry.shapes;
+
+import com.swvl.geometry.Utilities;
+
+import javax.naming.OperationNotSupportedException;
+
+/**
+ * Polygon validated once on construction. {@link Polygon#validate()} rescans all vertices for
+ * the orientation and bounds of the polygon and runs at the start of every predicate; this
+ * polygon computes bounds, area and edges with their line equations once, and validate()
+ * does nothing afterwards. Every predicate accepting a Polygon accepts this one, and edges
+ * of it are never recomputed by {@link Polygon#distanceTo(Point)} or contains.
+ * <p>
+ * Point queries first test the convex hull of the polygon in O(log n) by
+ * {@link ConvexPolygon}. A point outside the hull is outside the polygon, and a point inside
+ * the hull of a convex polygon is inside it; other points run the winding number.
+ * <p>
+ * The polygon is validated once, not immutable. Points are copied on construction, but the
+ * points array and bounds inherited from Polygon stay public and writable. They must not be
+ * modified afterwards: validate() does not rescan them, and the cached edges, area, hull and
+ * coordinates used by point queries would no longer match the polygon seen by other code.
+ *
+ * @author Hatem Morgan
+ */
+public class ValidatedPolygon extends Polygon {
+    /* Validated edges where edge i is from points[i] to points[i + 1] */
+    private final LineSegment[] edges;
+
+    /* Area of polygon which is positive as points are in counter-clockwise order */
+    private final double area;
+
+    /* Coordinates of vertices for the winding number */
+    private final double[] xs;
+    private final double[] ys;
+
+    private final ConvexPolygon hull;
+    private final boolean convex;
+
+    /**
+     * @throws IllegalArgumentException if points do not form a closed polygon of at least 3
+     *                                  vertices in counter-clockwise order
+     */
+    public ValidatedPolygon(Point[] points) {
+        super(copy(points));
+
+        /* Bounds are accumulated by validation, starting from the extreme values */
+        minX = Double.MAX_VALUE;
+        minY = Double.MAX_VALUE;
+        maxX = -Double.MAX_VALUE;
+        maxY = -Double.MAX_VALUE;
+        super.validate();
+
+        area = area();
+        edges = new LineSegment[this.points.length - 1];
+        xs = new double[edges.length];
+        ys = new double[edges.length];
+        for (int i = 0; i < edges.length; ++i) {
+            edges[i] = new LineSegment();
+            edges[i].set(this.points[i], this.points[i + 1]);
+            xs[i] = this.points[i].x;
+            ys[i] = this.points[i].y;
+        }
+
+        convex = isConvex();
+        hull = new ConvexPolygon(convex ? this : convexHull());
+    }
+
+    public ValidatedPolygon(Polygon polygon) {
+        this(polygon.points);
+    }
+
+    private static Point[] copy(Point[] points) {
+        Point[] copied = new Point[points.length];
+        for (int i = 0; i < points.length; ++i)
+            copied[i] = points[i].clone();
+        return copied;
+    }
+
+    /**
+     * Polygon was validated on construction and its points are not rescanned
+     */
+    @Override
+    public void validate() {
+    }
+
+    @Override
+    protected LineSegment edge(int i, LineSegment segment) {
+        return edges[i];
+    }
+
+    /**
+     * @return true if the point is inside the polygon or on its boundary
+     */
+    public boolean contains(double x, double y) {
+        if (!hull.contains(x, y))
+            return false;
+        return convex || Utilities.polygonPointIntersection(x, y, xs, ys, xs.length);
+    }
+
+    @Override
+    public boolean isIntersected(Shape shape) throws OperationNotSupportedException {
+        if (shape instanceof Point)
+            return contains(((Point) shape).x, ((Point) shape).y);
+
+        return super.isIntersected(shape);
+    }
+
+    @Override
+    public boolean contains(Shape shape) throws OperationNotSupportedException {
+        if (shape instanceof Point)
+            return contains(((Point) shape).x, ((Point) shape).y);
+
+        return super.contains(shape);
+    }
+
+    @Override
+    public boolean isConvex() {
+        return hull == null ? super.isConvex() : convex;
+    }
+
+    public ConvexPolygon getConvexHull() {
+        return hull;
+    }
+
+    public double getArea() {
+        return area;
+    }
+
+    public int getNumEdges() {
+        return edges.length;
+    }
+}
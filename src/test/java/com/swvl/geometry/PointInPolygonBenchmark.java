@@ -0,0 +1,80 @@
+package com.swvl.geometry;
+
+import com.swvl.geometry.shapes.Point;
+import com.swvl.geometry.shapes.Polygon;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Random;
+
+/**
+ * Compares throughput of the orientation based winding number of
+ * {@link Utilities#polygonPointIntersection(Point, Polygon)} and of its coordinate array form
+ * with the former acos based winding number. Run with
+ * <pre>
+ * java -cp target/classes:target/test-classes com.swvl.geometry.PointInPolygonBenchmark
+ * </pre>
+ *
+ * @author Hatem Morgan
+ */
+public class PointInPolygonBenchmark {
+    private static final int QUERIES = 200000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws OperationNotSupportedException {
+        int[] sizes = args.length > 0 ? new int[]{Integer.parseInt(args[0])} : new int[]{8, 64, 512};
+
+        for (int n : sizes) {
+            Polygon polygon = star(n, new Random(n));
+            double[] xs = new double[n], ys = new double[n];
+            for (int i = 0; i < n; ++i) {
+                xs[i] = polygon.points[i].x;
+                ys[i] = polygon.points[i].y;
+            }
+
+            Random random = new Random(1);
+            Point[] queries = new Point[QUERIES / n * 8 + 1000];
+            for (int q = 0; q < queries.length; ++q)
+                queries[q] = new Point(random.nextDouble() * 220 - 110, random.nextDouble() * 220 - 110);
+
+            long angles = Long.MAX_VALUE, orientation = Long.MAX_VALUE, arrays = Long.MAX_VALUE;
+            int inside = 0;
+            for (int round = 0; round < ROUNDS; ++round) {
+                long start = System.nanoTime();
+                for (Point query : queries)
+                    if (Utilities.polygonPointIntersectionByAngles(query, polygon))
+                        ++inside;
+                angles = Math.min(angles, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                for (Point query : queries)
+                    if (Utilities.polygonPointIntersection(query, polygon))
+                        ++inside;
+                orientation = Math.min(orientation, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                for (Point query : queries)
+                    if (Utilities.polygonPointIntersection(query.x, query.y, xs, ys, n))
+                        ++inside;
+                arrays = Math.min(arrays, System.nanoTime() - start);
+            }
+
+            System.out.printf("n=%d queries=%d acos=%.1f ns orientation=%.1f ns arrays=%.1f ns speedup=%.1fx/%.1fx (%d)%n",
+                    n, queries.length, (double) angles / queries.length, (double) orientation / queries.length,
+                    (double) arrays / queries.length, (double) angles / orientation, (double) angles / arrays, inside);
+        }
+    }
+
+    /**
+     * Star-shaped polygon of n vertices in counter-clockwise order around the origin
+     */
+    private static Polygon star(int n, Random random) {
+        Point[] points = new Point[n + 1];
+        for (int i = 0; i < n; ++i) {
+            double angle = 2 * Math.PI * i / n;
+            double radius = 50 + random.nextDouble() * 50;
+            points[i] = new Point(radius * Math.cos(angle), radius * Math.sin(angle));
+        }
+        points[n] = points[0];
+        return new Polygon(points);
+    }
+}
@@ -0,0 +1,234 @@
+package com.swvl.geometry;
+
+import com.swvl.geometry.shapes.LineSegment;
+import com.swvl.geometry.shapes.Point;
+import com.swvl.geometry.shapes.Polygon;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Random;
+
+public class SegmentSweepTest {
+
+    /**
+     * Test all pairs of edges by the predicate of the sweep
+     */
+    private static boolean bruteForceEdgesIntersect(double[] xs1, double[] ys1, double[] xs2, double[] ys2) {
+        for (int i = 0, j = xs1.length - 1; i < xs1.length; j = i++)
+            for (int k = 0, l = xs2.length - 1; k < xs2.length; l = k++) {
+                double d1 = cross(xs1[j], ys1[j], xs1[i], ys1[i], xs2[l], ys2[l]);
+                double d2 = cross(xs1[j], ys1[j], xs1[i], ys1[i], xs2[k], ys2[k]);
+                double d3 = cross(xs2[l], ys2[l], xs2[k], ys2[k], xs1[j], ys1[j]);
+                double d4 = cross(xs2[l], ys2[l], xs2[k], ys2[k], xs1[i], ys1[i]);
+                if (d1 * d2 < 0 && d3 * d4 < 0)
+                    return true;
+
+                if (Utilities.onEdge(xs2[l], ys2[l], xs1[j], ys1[j], xs1[i], ys1[i])
+                        || Utilities.onEdge(xs2[k], ys2[k], xs1[j], ys1[j], xs1[i], ys1[i])
+                        || Utilities.onEdge(xs1[j], ys1[j], xs2[l], ys2[l], xs2[k], ys2[k])
+                        || Utilities.onEdge(xs1[i], ys1[i], xs2[l], ys2[l], xs2[k], ys2[k]))
+                    return true;
+            }
+        return false;
+    }
+
+    private static double cross(double x1, double y1, double x2, double y2, double x, double y) {
+        return (x2 - x1) * (y - y1) - (y2 - y1) * (x - x1);
+    }
+
+    /**
+     * Triangle or axis-aligned rectangle of small integer coordinates producing shared
+     * vertices, vertical edges and collinear overlaps
+     */
+    private static double[][] randomRing(Random random) {
+        if (random.nextBoolean()) {
+            double x0 = random.nextInt(6), y0 = random.nextInt(6);
+            double x1 = x0 + 1 + random.nextInt(3), y1 = y0 + 1 + random.nextInt(3);
+            return new double[][]{{x0, x1, x1, x0}, {y0, y0, y1, y1}};
+        }
+
+        while (true) {
+            double[] xs = new double[3], ys = new double[3];
+            for (int i = 0; i < 3; ++i) {
+                xs[i] = random.nextInt(8);
+                ys[i] = random.nextInt(8);
+            }
+            if (cross(xs[0], ys[0], xs[1], ys[1], xs[2], ys[2]) != 0)
+                return new double[][]{xs, ys};
+        }
+    }
+
+    @Test
+    public void testDegenerateEdgesMatchBruteForce() {
+        Random random = new Random(21);
+        int intersecting = 0;
+        for (int q = 0; q < 5000; ++q) {
+            double[][] a = randomRing(random), b = randomRing(random);
+            boolean expected = bruteForceEdgesIntersect(a[0], a[1], b[0], b[1]);
+            Assert.assertEquals(expected, SegmentSweep.edgesIntersect(a[0], a[1], a[0].length, b[0], b[1], b[0].length));
+            Assert.assertEquals(expected, SegmentSweep.edgesIntersect(b[0], b[1], b[0].length, a[0], a[1], a[0].length));
+            if (expected)
+                ++intersecting;
+        }
+        Assert.assertTrue(intersecting > 1000 && intersecting < 4000);
+    }
+
+    @Test
+    public void testTouchingPolygons() {
+        double[] xs = new double[]{0, 1, 1, 0}, ys = new double[]{0, 0, 1, 1};
+
+        /* Shared edge, shared corner, vertex on edge and disjoint squares */
+        Assert.assertTrue(SegmentSweep.edgesIntersect(xs, ys, 4, new double[]{1, 2, 2, 1}, ys, 4));
+        Assert.assertTrue(SegmentSweep.edgesIntersect(xs, ys, 4, new double[]{1, 2, 2, 1}, new double[]{1, 1, 2, 2}, 4));
+        Assert.assertTrue(SegmentSweep.edgesIntersect(xs, ys, 4, new double[]{1, 2, 2}, new double[]{0.5, 0, 1}, 3));
+        Assert.assertFalse(SegmentSweep.edgesIntersect(xs, ys, 4, new double[]{1.5, 2, 2, 1.5}, ys, 4));
+
+        /* Nested squares have no intersecting edges */
+        Assert.assertFalse(SegmentSweep.edgesIntersect(xs, ys, 4,
+                new double[]{0.25, 0.75, 0.75, 0.25}, new double[]{0.25, 0.25, 0.75, 0.75}, 4));
+
+        /* Closed rings where the first vertex is repeated */
+        Assert.assertTrue(SegmentSweep.edgesIntersect(new double[]{0, 1, 1, 0, 0}, new double[]{0, 0, 1, 1, 0}, 5,
+                new double[]{0.5, 3, 3, 0.5}, new double[]{0.5, 0.5, 3, 0.5}, 4));
+    }
+
+    @Test
+    public void testSelfIntersection() {
+        /* Square, closed square with repeated vertices and figure eight */
+        Assert.assertFalse(SegmentSweep.selfIntersects(new double[]{0, 1, 1, 0}, new double[]{0, 0, 1, 1}, 4));
+        Assert.assertFalse(SegmentSweep.selfIntersects(new double[]{0, 1, 1, 1, 0, 0}, new double[]{0, 0, 0, 1, 1, 0}, 6));
+        Assert.assertTrue(SegmentSweep.selfIntersects(new double[]{0, 1, 0, 1}, new double[]{0, 1, 1, 0}, 4));
+
+        /* Vertex touching a non-consecutive edge and ring passing twice through a vertex */
+        Assert.assertTrue(SegmentSweep.selfIntersects(new double[]{0, 4, 4, 2, 0}, new double[]{0, 0, 4, 0, 4}, 5));
+        Assert.assertTrue(SegmentSweep.selfIntersects(new double[]{0, 2, 2, 4, 4, 2, 2, 0},
+                new double[]{0, 0, 2, 2, 4, 4, 2, 2}, 8));
+
+        Random random = new Random(4);
+        for (int q = 0; q < 50; ++q) {
+            Polygon polygon = star(4 + random.nextInt(100), 0, 0, 50, random);
+            int n = polygon.points.length;
+            double[] xs = new double[n], ys = new double[n];
+            for (int i = 0; i < n; ++i) {
+                xs[i] = polygon.points[i].x;
+                ys[i] = polygon.points[i].y;
+            }
+            Assert.assertFalse(SegmentSweep.selfIntersects(xs, ys, n));
+
+            /* Swapping two vertices far apart makes their edges cross */
+            double x = xs[0], y = ys[0];
+            xs[0] = xs[n / 2];
+            ys[0] = ys[n / 2];
+            xs[n / 2] = x;
+            ys[n / 2] = y;
+            xs[n - 1] = xs[0];
+            ys[n - 1] = ys[0];
+            Assert.assertTrue(SegmentSweep.selfIntersects(xs, ys, n));
+        }
+    }
+
+    @Test
+    public void testSelfIntersectionFoldBack() {
+        /* Last edge folds back along the previous one and collinear overlap of consecutive edges */
+        Assert.assertTrue(SegmentSweep.selfIntersects(new double[]{5, 1, 6, 5}, new double[]{2, 0, 0, 0}, 4));
+        Assert.assertTrue(SegmentSweep.selfIntersects(new double[]{0, 4, 2, 2}, new double[]{0, 0, 0, 3}, 4));
+
+        /* Collinear consecutive edges continuing in the same direction are simple */
+        Assert.assertFalse(SegmentSweep.selfIntersects(new double[]{0, 2, 4, 4, 0}, new double[]{0, 0, 0, 4, 4}, 5));
+
+        /* Small rings on an integer grid have many collinear and touching edges */
+        Random random = new Random(24);
+        for (int q = 0; q < 20000; ++q) {
+            int n = 4 + random.nextInt(5);
+            double[] xs = new double[n], ys = new double[n];
+            for (int i = 0; i < n; ++i)
+                do {
+                    xs[i] = random.nextInt(6);
+                    ys[i] = random.nextInt(6);
+                } while ((i > 0 && xs[i] == xs[i - 1] && ys[i] == ys[i - 1])
+                        || (i == n - 1 && xs[i] == xs[0] && ys[i] == ys[0]));
+
+            Assert.assertEquals(bruteForceSelfIntersects(xs, ys), SegmentSweep.selfIntersects(xs, ys, n));
+        }
+    }
+
+    /**
+     * Test all pairs of edges of a ring without repeated vertices, where consecutive edges
+     * intersect if the far end point of one of them lies on the other
+     */
+    private static boolean bruteForceSelfIntersects(double[] xs, double[] ys) {
+        int n = xs.length;
+        for (int i = 0; i < n; ++i)
+            for (int j = i + 1; j < n; ++j) {
+                int i2 = (i + 1) % n, j2 = (j + 1) % n;
+                if (j == i + 1 || (i == 0 && j == n - 1)) {
+                    int shared = j == i + 1 ? j : i, far1 = j == i + 1 ? i : i2, far2 = j == i + 1 ? j2 : j;
+                    if (onEdge(xs, ys, far1, shared, far2) || onEdge(xs, ys, far2, shared, far1))
+                        return true;
+                    continue;
+                }
+
+                double d1 = cross(xs[i], ys[i], xs[i2], ys[i2], xs[j], ys[j]);
+                double d2 = cross(xs[i], ys[i], xs[i2], ys[i2], xs[j2], ys[j2]);
+                double d3 = cross(xs[j], ys[j], xs[j2], ys[j2], xs[i], ys[i]);
+                double d4 = cross(xs[j], ys[j], xs[j2], ys[j2], xs[i2], ys[i2]);
+                if (d1 * d2 < 0 && d3 * d4 < 0)
+                    return true;
+                if (onEdge(xs, ys, j, i, i2) || onEdge(xs, ys, j2, i, i2)
+                        || onEdge(xs, ys, i, j, j2) || onEdge(xs, ys, i2, j, j2))
+                    return true;
+            }
+        return false;
+    }
+
+    /**
+     * Check if vertex p lies on edge from vertex a to vertex b
+     */
+    private static boolean onEdge(double[] xs, double[] ys, int p, int a, int b) {
+        return Utilities.onEdge(xs[p], ys[p], xs[a], ys[a], xs[b], ys[b]);
+    }
+
+    /**
+     * Star-shaped polygon of n vertices in counter-clockwise order around (cx, cy)
+     */
+    private static Polygon star(int n, double cx, double cy, double radius, Random random) {
+        Point[] points = new Point[n + 1];
+        for (int i = 0; i < n; ++i) {
+            double angle = 2 * Math.PI * i / n;
+            double r = radius * (0.5 + random.nextDouble() / 2);
+            points[i] = new Point(cx + r * Math.cos(angle), cy + r * Math.sin(angle));
+        }
+        points[n] = points[0];
+        return new Polygon(points);
+    }
+
+    @Test
+    public void testPolygonIntersectionMatchesBruteForce() throws OperationNotSupportedException {
+        Random random = new Random(8);
+        int intersecting = 0;
+        for (int q = 0; q < 300; ++q) {
+            Polygon a = star(3 + random.nextInt(60), 0, 0, 100, random);
+            Polygon b = star(3 + random.nextInt(60), random.nextDouble() * 300 - 150,
+                    random.nextDouble() * 300 - 150, 5 + random.nextDouble() * 100, random);
+
+            /* Pairs of edges then one vertex of each polygon in the other one */
+            boolean expected = false;
+            LineSegment edge = new LineSegment(), other = new LineSegment();
+            for (int i = 0; i < a.points.length - 1 && !expected; ++i)
+                for (int j = 0; j < b.points.length - 1 && !expected; ++j) {
+                    edge.set(a.points[i], a.points[i + 1]);
+                    other.set(b.points[j], b.points[j + 1]);
+                    expected = edge.isIntersected(other);
+                }
+            expected = expected || Utilities.polygonPointIntersection(a.points[0], b)
+                    || Utilities.polygonPointIntersection(b.points[0], a);
+
+            Assert.assertEquals(expected, a.isIntersected(b));
+            Assert.assertEquals(expected, b.isIntersected(a));
+            if (expected)
+                ++intersecting;
+        }
+        Assert.assertTrue(intersecting > 50 && intersecting < 250);
+    }
+}
@@ -0,0 +1,128 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Point;
+import com.swvl.geometry.shapes.Rectangle;
+import com.swvl.geometry.shapes.Shape;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConcurrentRtreeTest {
+
+    @Test
+    public void testInsertAndRemove() {
+        Point p1 = new Point(1, 1);
+        Point p2 = new Point(2, 2);
+        Point p3 = new Point(3, 3);
+
+        ConcurrentRtree rtree = new ConcurrentRtree(Rtree.bulkLoad(new Shape[]{p1}, 4));
+        Rtree before = rtree.snapshot();
+
+        rtree.insert(p2, p3);
+        Assert.assertSame(before, rtree.snapshot()); // changes are buffered
+        Assert.assertEquals(2, rtree.getNumPending());
+        Assert.assertEquals(3, rtree.flush().getNumRecords());
+        Assert.assertEquals(1, before.getNumRecords()); // old snapshot is untouched
+
+        rtree.remove(p1, p3);
+        rtree.flush();
+        Assert.assertEquals(1, rtree.snapshot().getNumRecords());
+        Assert.assertSame(p2, rtree.snapshot().getRecord(0));
+
+        /* Shape inserted then removed before publication never appears */
+        rtree.insert(p1);
+        rtree.remove(p1);
+        Assert.assertEquals(1, rtree.flush().getNumRecords());
+    }
+
+    @Test
+    public void testBatchedRebuildKeepsLoaderAndLayout() {
+        Shape[] shapes = new Shape[100];
+        for (int i = 0; i < shapes.length; ++i)
+            shapes[i] = new Point(i, (i * 37) % 100);
+        Rtree hilbert = Rtree.hilbertLoad(shapes, 4);
+        hilbert.setLayout(Rtree.VAN_EMDE_BOAS);
+
+        /* Rebuild happens once per batch of 10 changes */
+        ConcurrentRtree rtree = new ConcurrentRtree(hilbert, 10);
+        for (int i = 0; i < 9; ++i)
+            rtree.insert(new Point(i, i));
+        Assert.assertSame(hilbert, rtree.snapshot());
+        rtree.insert(new Point(9, 9));
+        Rtree next = rtree.snapshot();
+        Assert.assertEquals(110, next.getNumRecords());
+        Assert.assertEquals(0, rtree.getNumPending());
+
+        Assert.assertEquals(Rtree.HILBERT_LOADER, next.getLoader());
+        Assert.assertEquals(Rtree.VAN_EMDE_BOAS, next.getLayout());
+        Assert.assertEquals(Rtree.hilbertLoad(recordsById(next), 4).getNode(1).toString(), next.getNode(1).toString());
+
+        /* Ids of records follow insertion order */
+        Shape[] byId = recordsById(next);
+        for (int i = 0; i < shapes.length; ++i)
+            Assert.assertSame(shapes[i], byId[i]);
+
+        /* Published trees are frozen */
+        try {
+            next.setLayout(Rtree.BREADTH_FIRST);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            hilbert.setLayout(Rtree.BREADTH_FIRST);
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private static Shape[] recordsById(Rtree rtree) {
+        Shape[] byId = new Shape[rtree.getNumRecords()];
+        for (int i = 0; i < byId.length; ++i)
+            byId[rtree.getRecordId(i)] = rtree.getRecord(i);
+        return byId;
+    }
+
+    @Test
+    public void testReadersSeeConsistentSnapshots() throws InterruptedException {
+        final ConcurrentRtree rtree = new ConcurrentRtree(Rtree.bulkLoad(new Shape[0], 8), 16);
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final Rectangle everything = new Rectangle(-1, -1, 1001, 1001);
+
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; ++t) {
+            readers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (!done.get()) {
+                        Rtree snapshot = rtree.snapshot();
+                        final int[] count = new int[1];
+                        snapshot.search(everything, new LeafVisitor() {
+                            @Override
+                            public void visit(long offset, long size, int n) {
+                                count[0] += n;
+                            }
+                        });
+
+                        if (count[0] != snapshot.getNumRecords())
+                            failure.set("Found " + count[0] + " of " + snapshot.getNumRecords());
+                    }
+                }
+            });
+            readers[t].start();
+        }
+
+        for (int i = 0; i < 200; ++i)
+            rtree.insert(new Point(i % 1000, (i * 7) % 1000));
+        rtree.flush();
+
+        done.set(true);
+        for (Thread reader : readers)
+            reader.join();
+
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(200, rtree.snapshot().getNumRecords());
+    }
+}
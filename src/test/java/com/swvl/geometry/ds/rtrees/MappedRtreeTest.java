@@ -0,0 +1,377 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.LineSegment;
+import com.swvl.geometry.shapes.Point;
+import com.swvl.geometry.shapes.Polygon;
+import com.swvl.geometry.shapes.Rectangle;
+import com.swvl.geometry.shapes.Shape;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class MappedRtreeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Shape[] randomShapes(int n, long seed) {
+        Random random = new Random(seed);
+        Shape[] shapes = new Shape[n];
+        for (int i = 0; i < n; ++i) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+            switch (i % 4) {
+                case 0:
+                    shapes[i] = new Point(x, y);
+                    break;
+                case 1:
+                    shapes[i] = new Rectangle(x, y, x + 3, y + 2);
+                    break;
+                case 2:
+                    shapes[i] = new LineSegment(new Point(x, y), new Point(x + 1, y + 4));
+                    break;
+                default:
+                    shapes[i] = new Polygon(new Point[]{new Point(x, y), new Point(x + 2, y),
+                            new Point(x + 1, y + 2), new Point(x, y)});
+            }
+        }
+        return shapes;
+    }
+
+    @Test
+    public void testWriteAndQueryMappedFile() throws IOException {
+        final Shape[] shapes = randomShapes(2000, 23);
+        Rtree veb = Rtree.bulkLoad(shapes, 8);
+        veb.setLayout(Rtree.VAN_EMDE_BOAS);
+
+        for (final Rtree rtree : new Rtree[]{Rtree.bulkLoad(shapes, 8), veb}) {
+            File file = folder.newFile();
+            RtreeFile.write(rtree, file);
+
+            final MappedRtree mapped = MappedRtree.open(file);
+            try {
+                Assert.assertEquals(rtree.getLayout(), mapped.getLayout());
+                Assert.assertEquals(rtree.getNumRecords(), mapped.getNumRecords());
+                Assert.assertEquals(rtree.getNumNodes(), mapped.getNumNodes());
+                Assert.assertEquals(rtree.getNode(1).mbr, mapped.getNode(1).mbr);
+
+                Random random = new Random(29);
+                for (int q = 0; q < 30; ++q) {
+                    double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+                    Rectangle window = new Rectangle(x, y, x + 80, y + 80);
+
+                    final Set<Integer> expected = new HashSet<Integer>();
+                    rtree.search(window, new LeafVisitor() {
+                        @Override
+                        public void visit(long offset, long size, int count) {
+                            for (int r = (int) offset; r < offset + count; ++r)
+                                expected.add(rtree.getRecordId(r));
+                        }
+                    });
+
+                    final Set<Integer> actual = new HashSet<Integer>();
+                    mapped.search(window, new LeafVisitor() {
+                        @Override
+                        public void visit(long offset, long size, int count) {
+                            long position = offset;
+                            for (int r = 0; r < count; ++r) {
+                                int id = (int) mapped.getRecordId(position);
+                                Assert.assertEquals(shapes[id].getMBR(), mapped.getRecord(position).getMBR());
+                                actual.add(id);
+                                position = mapped.nextRecord(position);
+                            }
+                            Assert.assertEquals(offset + size, position);
+                        }
+                    });
+
+                    Assert.assertEquals(expected, actual);
+                }
+            } finally {
+                mapped.close();
+            }
+        }
+    }
+
+    @Test
+    public void testCachedRtreeMatchesMappedFile() throws IOException {
+        Shape[] shapes = randomShapes(5000, 71);
+        Rtree veb = Rtree.hilbertLoad(shapes, 6);
+        veb.setLayout(Rtree.VAN_EMDE_BOAS);
+
+        for (Rtree rtree : new Rtree[]{Rtree.bulkLoad(shapes, 10), veb}) {
+            File file = folder.newFile();
+            RtreeFile.write(rtree, file);
+
+            /* Cache of 16 pages of 1 KB, a small fraction of the file */
+            final CachedRtree cached = CachedRtree.open(file, 1024, 16 * 1024, 2);
+            final MappedRtree mapped = MappedRtree.open(file);
+            try {
+                Assert.assertTrue(cached.getCache().getNumPinned() > 0);
+                Assert.assertEquals(mapped.getNumNodes(), cached.getNumNodes());
+                for (int i = 1; i <= mapped.getNumNodes(); ++i)
+                    Assert.assertEquals(mapped.getNode(i).toString(), cached.getNode(i).toString());
+
+                Random random = new Random(73);
+                for (int q = 0; q < 40; ++q) {
+                    double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+                    Rectangle window = new Rectangle(x, y, x + 100, y + 100);
+
+                    final StringBuilder expected = new StringBuilder();
+                    mapped.search(window, new LeafVisitor() {
+                        @Override
+                        public void visit(long offset, long size, int count) {
+                            long position = offset;
+                            for (int r = 0; r < count; ++r) {
+                                expected.append(mapped.getRecordId(position)).append(mapped.getRecord(position).getMBR());
+                                position = mapped.nextRecord(position);
+                            }
+                        }
+                    });
+
+                    final StringBuilder actual = new StringBuilder();
+                    cached.search(window, new LeafVisitor() {
+                        @Override
+                        public void visit(long offset, long size, int count) {
+                            try {
+                                long position = offset;
+                                for (int r = 0; r < count; ++r) {
+                                    actual.append(cached.getRecordId(position)).append(cached.getRecord(position).getMBR());
+                                    position = cached.nextRecord(position);
+                                }
+                                Assert.assertEquals(offset + size, position);
+                            } catch (IOException e) {
+                                throw new RuntimeException(e);
+                            }
+                        }
+                    });
+
+                    Assert.assertEquals(expected.toString(), actual.toString());
+                }
+
+                PageCache cache = cached.getCache();
+                Assert.assertTrue(cache.getHits() > 0);
+                Assert.assertTrue(cache.getEvictions() > 0);
+                Assert.assertTrue(cache.getMisses() >= cache.getEvictions());
+
+                /* Pinned root page is never evicted */
+                cache.resetCounters();
+                cached.getNode(1);
+                Assert.assertEquals(0, cache.getMisses());
+            } finally {
+                cached.close();
+                mapped.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        Shape[] shapes = randomShapes(3000, 47);
+        Rtree veb = Rtree.bulkLoad(shapes, 7);
+        veb.setLayout(Rtree.VAN_EMDE_BOAS);
+        Rtree[] trees = new Rtree[]{Rtree.bulkLoad(shapes, 16), Rtree.hilbertLoad(mbrsOf(shapes), 5),
+                Rtree.bulkLoad(new Shape[0], 4), veb};
+
+        for (Rtree rtree : trees) {
+            File file = folder.newFile();
+            RtreeSnapshot.write(rtree, file);
+            Rtree loaded = RtreeSnapshot.read(file);
+
+            Assert.assertEquals(rtree.getLayout(), loaded.getLayout());
+            Assert.assertEquals(rtree.getLoader(), loaded.getLoader());
+            Assert.assertEquals(rtree.getDegree(), loaded.getDegree());
+            Assert.assertEquals(rtree.getHeight(), loaded.getHeight());
+            Assert.assertEquals(rtree.getNumNodes(), loaded.getNumNodes());
+            Assert.assertEquals(rtree.getNumLeaves(), loaded.getNumLeaves());
+            Assert.assertEquals(rtree.getNumRecords(), loaded.getNumRecords());
+
+            for (int i = 1; i <= rtree.getNumNodes(); ++i)
+                Assert.assertEquals(rtree.getNode(i).toString(), loaded.getNode(i).toString());
+
+            for (int i = 0; i < rtree.getNumRecords(); ++i) {
+                Assert.assertEquals(rtree.getRecordId(i), loaded.getRecordId(i));
+                Assert.assertEquals(rtree.getRecordMbr(i), loaded.getRecordMbr(i));
+                if (rtree.getRecord(i) == null)
+                    Assert.assertNull(loaded.getRecord(i));
+                else
+                    Assert.assertEquals(rtree.getRecord(i).getMBR(), loaded.getRecord(i).getMBR());
+            }
+        }
+    }
+
+    @Test
+    public void testSnapshotKeepsHilbertLoader() throws IOException {
+        File file = folder.newFile();
+        RtreeSnapshot.write(Rtree.hilbertLoad(randomShapes(500, 53), 8), file);
+        Assert.assertEquals(Rtree.HILBERT_LOADER, RtreeSnapshot.read(file).getLoader());
+
+        RtreeSnapshot.write(Rtree.bulkLoad(randomShapes(500, 53), 8), file);
+        Assert.assertEquals(Rtree.STR_LOADER, RtreeSnapshot.read(file).getLoader());
+    }
+
+    @Test
+    public void testTruncatedSnapshotFailsWithEOF() throws IOException {
+        File file = folder.newFile();
+        RtreeSnapshot.write(Rtree.bulkLoad(randomShapes(1000, 59), 8), file);
+        byte[] content = new byte[(int) file.length()];
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.readFully(content);
+        } finally {
+            raf.close();
+        }
+
+        /* Cut inside the header, the node array, records and shapes, and just before the end */
+        long nodesEnd = RtreeSnapshot.HEADER_SIZE + 1L * RtreeSnapshot.NODE_SIZE * RtreeSnapshot.read(file).getNumNodes();
+        long[] lengths = new long[]{0, 1, RtreeSnapshot.HEADER_SIZE - 1, RtreeSnapshot.HEADER_SIZE + 7,
+                nodesEnd - 3, nodesEnd + RtreeSnapshot.RECORD_SIZE - 1, nodesEnd + RtreeSnapshot.RECORD_SIZE + 3,
+                content.length - 7, content.length - 1};
+        for (long length : lengths) {
+            File truncated = folder.newFile();
+            FileOutputStream out = new FileOutputStream(truncated);
+            out.write(content, 0, (int) length);
+            out.close();
+
+            try {
+                RtreeSnapshot.read(truncated);
+                Assert.fail("Read snapshot truncated to " + length + " bytes");
+            } catch (EOFException expected) {
+            }
+        }
+    }
+
+    private static Rectangle[] mbrsOf(Shape[] shapes) {
+        Rectangle[] mbrs = new Rectangle[shapes.length];
+        for (int i = 0; i < shapes.length; ++i)
+            mbrs[i] = shapes[i].getMBR();
+        return mbrs;
+    }
+
+    @Test
+    public void testExternalLoadMatchesInMemoryLoad() throws IOException {
+        int[] sizes = new int[]{0, 1, 6, 1000, 2777};
+
+        for (int n : sizes) {
+            Shape[] shapes = randomShapes(n, n);
+            Rectangle[] mbrs = mbrsOf(shapes);
+
+            File input = folder.newFile();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(input)));
+            for (int i = 0; i < n; ++i) {
+                out.writeLong(i);
+                out.writeDouble(mbrs[i].minPoint.x);
+                out.writeDouble(mbrs[i].minPoint.y);
+                out.writeDouble(mbrs[i].maxPoint.x);
+                out.writeDouble(mbrs[i].maxPoint.y);
+            }
+            out.close();
+
+            /* Small runs and fan-in force several merge passes */
+            File external = folder.newFile();
+            ExternalRtreeLoader.load(input, external, 6, 50, 3, folder.getRoot());
+
+            File expected = folder.newFile();
+            RtreeFile.write(Rtree.hilbertLoad(mbrs, 6), expected);
+
+            MappedRtree actualTree = MappedRtree.open(external);
+            MappedRtree expectedTree = MappedRtree.open(expected);
+            try {
+                Assert.assertEquals(expectedTree.getHeight(), actualTree.getHeight());
+                Assert.assertEquals(expectedTree.getNumNodes(), actualTree.getNumNodes());
+                Assert.assertEquals(n, actualTree.getNumRecords());
+
+                for (int i = 1; i <= expectedTree.getNumNodes(); ++i)
+                    Assert.assertEquals(expectedTree.getNode(i).toString(), actualTree.getNode(i).toString());
+
+                long position = expectedTree.getNode(1).offset;
+                for (int i = 0; i < n; ++i) {
+                    Assert.assertEquals(expectedTree.getRecordId(position), actualTree.getRecordId(position));
+                    Assert.assertEquals(expectedTree.getRecord(position), actualTree.getRecord(position));
+                    position = expectedTree.nextRecord(position);
+                }
+            } finally {
+                actualTree.close();
+                expectedTree.close();
+            }
+        }
+
+        /* Temporary runs are removed */
+        for (File file : folder.getRoot().listFiles())
+            Assert.assertFalse(file.getName().startsWith("rtree-run"));
+    }
+
+    @Test
+    public void testPageCacheConcurrentReads() throws IOException, InterruptedException {
+        final byte[] content = new byte[64 * 1024 + 100];
+        new Random(18).nextBytes(content);
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content);
+        out.close();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            /* Few frames shared by more threads than frames force waiting and eviction */
+            final PageCache cache = new PageCache(raf.getChannel(), 256, 4 * 256);
+            cache.pin(0, 10);
+
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            Thread[] readers = new Thread[8];
+            for (int t = 0; t < readers.length; ++t) {
+                final long seed = t;
+                readers[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Random random = new Random(seed);
+                        try {
+                            for (int q = 0; q < 5000 && failure.get() == null; ++q) {
+                                int position = random.nextInt(content.length);
+                                int length = Math.min(content.length - position, 1 + random.nextInt(600));
+                                ByteBuffer dst = ByteBuffer.allocate(length);
+                                cache.read(position, dst);
+                                for (int i = 0; i < length; ++i)
+                                    if (dst.get(i) != content[position + i])
+                                        throw new AssertionError("Wrong byte at " + (position + i));
+                            }
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                });
+                readers[t].start();
+            }
+            for (Thread reader : readers)
+                reader.join();
+
+            Assert.assertNull(failure.get());
+            Assert.assertTrue(cache.getEvictions() > 0);
+            Assert.assertTrue(cache.getMisses() >= cache.getEvictions());
+
+            /* Pinned first page survived the eviction */
+            cache.resetCounters();
+            cache.read(0, ByteBuffer.allocate(10));
+            Assert.assertEquals(0, cache.getMisses());
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectInvalidFile() throws IOException {
+        File file = folder.newFile("invalid.rtree");
+        MappedRtree.open(file);
+    }
+}
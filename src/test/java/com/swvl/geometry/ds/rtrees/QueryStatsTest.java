@@ -0,0 +1,75 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Point;
+import com.swvl.geometry.shapes.Rectangle;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Random;
+
+public class QueryStatsTest {
+
+    @Test
+    public void testQueryStats() throws OperationNotSupportedException {
+        /* Run by the query-stats execution of surefire setting -Dcom.swvl.geometry.rtree.stats=true */
+        Assume.assumeTrue(QueryStats.ENABLED);
+
+        Random random = new Random(17);
+        Point[] points = new Point[1000];
+        for (int i = 0; i < points.length; ++i)
+            points[i] = new Point(random.nextDouble() * 1000, random.nextDouble() * 1000);
+        Rtree rtree = Rtree.bulkLoad(points, 10);
+        QueryStats.reset();
+
+        /* Window covering everything visits every node */
+        RefineResult result = rtree.query(new Rectangle(-1, -1, 1001, 1001));
+        QueryStats stats = QueryStats.last();
+        Assert.assertEquals(rtree.firstLeaf() - 1, stats.internalNodes);
+        Assert.assertEquals(rtree.getNumLeaves(), stats.leaves);
+        Assert.assertEquals(1000, stats.candidates);
+        Assert.assertEquals(1000, stats.hits);
+        Assert.assertEquals(1000, result.numHits);
+
+        rtree.nearestNeighbours(new Point(500, 500), 5);
+        Assert.assertEquals(5, QueryStats.last().hits);
+        Assert.assertTrue(QueryStats.last().candidates >= 5);
+
+        long[] hits = QueryStats.histogram(QueryStats.HITS);
+        Assert.assertEquals(1, hits[32 - Integer.numberOfLeadingZeros(1000)]);
+        Assert.assertEquals(1, hits[32 - Integer.numberOfLeadingZeros(5)]);
+    }
+
+    @Test
+    public void testTerminatedThreadsAreRetired() throws InterruptedException {
+        QueryStats.reset();
+        int before = QueryStats.numThreads();
+
+        /* Every short-lived thread records a query with 3 hits */
+        for (int round = 0; round < 10; ++round) {
+            Thread[] threads = new Thread[20];
+            for (int t = 0; t < threads.length; ++t) {
+                threads[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        QueryStats stats = QueryStats.begin();
+                        stats.hits = 3;
+                        stats.end();
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads)
+                thread.join();
+        }
+
+        /* Histograms of terminated threads are kept while their instances are dropped */
+        Assert.assertTrue(QueryStats.numThreads() <= before);
+        Assert.assertEquals(200, QueryStats.histogram(QueryStats.HITS)[2]);
+        Assert.assertEquals(200, QueryStats.histogram(QueryStats.LEAVES)[0]);
+
+        QueryStats.reset();
+        Assert.assertEquals(0, QueryStats.histogram(QueryStats.HITS)[2]);
+    }
+}
@@ -0,0 +1,99 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Rectangle;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class RStarTreeTest {
+
+    private static Rectangle[] randomRectangles(int n, long seed) {
+        Random random = new Random(seed);
+        Rectangle[] rects = new Rectangle[n];
+        for (int i = 0; i < n; ++i) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+            rects[i] = new Rectangle(x, y, x + random.nextDouble() * 10, y + random.nextDouble() * 10);
+        }
+        return rects;
+    }
+
+    private static Set<Long> search(RStarTree rtree, Rectangle window) {
+        final Set<Long> found = new HashSet<Long>();
+        rtree.search(window, new LeafVisitor() {
+            @Override
+            public void visit(long offset, long size, int count) {
+                found.add(offset);
+            }
+        });
+        return found;
+    }
+
+    /**
+     * Check node invariants and return the number of records under node
+     */
+    private static int checkNode(RStarTree rtree, RStarTree.RStarNode node) throws OperationNotSupportedException {
+        if (node != rtree.root)
+            Assert.assertTrue(node.entries.size() >= rtree.minEntries);
+        Assert.assertTrue(node.entries.size() <= rtree.maxEntries);
+
+        int count = 0;
+        for (Node entry : node.entries) {
+            Assert.assertTrue(node.mbr.contains(entry.mbr));
+            if (node.isLeaf()) {
+                count += 1;
+            } else {
+                RStarTree.RStarNode child = (RStarTree.RStarNode) entry;
+                Assert.assertSame(node, child.parent);
+                Assert.assertEquals(node.level - 1, child.level);
+                count += checkNode(rtree, child);
+            }
+        }
+
+        Assert.assertEquals(count, node.count);
+        return count;
+    }
+
+    @Test
+    public void testInsertDeleteAndSearch() throws OperationNotSupportedException {
+        Rectangle[] rects = randomRectangles(3000, 17);
+        RStarTree rtree = new RStarTree(8);
+
+        for (int i = 0; i < rects.length; ++i)
+            rtree.insert(rects[i], i);
+
+        Assert.assertEquals(rects.length, rtree.getNumRecords());
+        Assert.assertEquals(rects.length, checkNode(rtree, rtree.root));
+
+        /* Delete even ids */
+        for (int i = 0; i < rects.length; i += 2)
+            Assert.assertTrue(rtree.delete(rects[i], i));
+        Assert.assertFalse(rtree.delete(rects[0], 0));
+
+        Assert.assertEquals(rects.length / 2, rtree.getNumRecords());
+        Assert.assertEquals(rects.length / 2, checkNode(rtree, rtree.root));
+
+        Random random = new Random(19);
+        for (int q = 0; q < 50; ++q) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+            Rectangle window = new Rectangle(x, y, x + 100, y + 100);
+
+            Set<Long> expected = new HashSet<Long>();
+            for (int i = 1; i < rects.length; i += 2)
+                if (window.isIntersected(rects[i]))
+                    expected.add((long) i);
+
+            Assert.assertEquals(expected, search(rtree, window));
+        }
+
+        /* Delete everything */
+        for (int i = 1; i < rects.length; i += 2)
+            Assert.assertTrue(rtree.delete(rects[i], i));
+        Assert.assertEquals(0, rtree.getNumRecords());
+        Assert.assertEquals(1, rtree.getHeight());
+        Assert.assertTrue(search(rtree, new Rectangle(0, 0, 1000, 1000)).isEmpty());
+    }
+}
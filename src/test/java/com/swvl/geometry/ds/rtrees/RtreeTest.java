@@ -0,0 +1,369 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Point;
+import com.swvl.geometry.shapes.Polygon;
+import com.swvl.geometry.shapes.Rectangle;
+import com.swvl.geometry.shapes.Shape;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Arrays;
+import java.util.Random;
+
+public class RtreeTest {
+
+    private static Point[] randomPoints(int n, long seed) {
+        Random random = new Random(seed);
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; ++i)
+            points[i] = new Point(random.nextDouble() * 1000, random.nextDouble() * 1000);
+        return points;
+    }
+
+    /**
+     * Check that records are packed into leaves and nodes cover their children
+     */
+    private static void checkStructure(Rtree rtree, Point[] points, int degree) throws OperationNotSupportedException {
+        int n = points.length;
+        Assert.assertEquals(n, rtree.getNumRecords());
+        Assert.assertEquals(rtree.getNumNodes() + 1, rtree.tree.length);
+
+        /* Every record appears exactly once */
+        boolean[] seen = new boolean[n];
+        for (int i = 0; i < n; ++i) {
+            Assert.assertFalse(seen[rtree.getRecordId(i)]);
+            seen[rtree.getRecordId(i)] = true;
+            Assert.assertSame(points[rtree.getRecordId(i)], rtree.getRecord(i));
+        }
+
+        /* Leaves cover consecutive records without exceeding the degree */
+        int expectedOffset = 0;
+        for (int i = rtree.firstLeaf(); i <= rtree.getNumNodes(); ++i) {
+            Node leaf = rtree.getNode(i);
+            Assert.assertEquals(expectedOffset, leaf.offset);
+            Assert.assertTrue(leaf.count <= degree);
+            for (int r = (int) leaf.offset; r < leaf.offset + leaf.count; ++r)
+                Assert.assertTrue(leaf.mbr.contains(rtree.getRecord(r)));
+            expectedOffset += leaf.count;
+        }
+        Assert.assertEquals(n, expectedOffset);
+
+        /* Internal nodes cover their children */
+        for (int i = rtree.firstLeaf() - 1; i >= 1; --i) {
+            Node node = rtree.getNode(i);
+            int count = 0;
+            for (int j = 0; j < rtree.getDegree(); ++j) {
+                Node child = rtree.getNode(i * rtree.getDegree() + rtree.range[j]);
+                Assert.assertTrue(node.mbr.contains(child.mbr));
+                count += child.count;
+            }
+            Assert.assertEquals(node.count, count);
+        }
+    }
+
+    @Test
+    public void testBulkLoadStructure() throws OperationNotSupportedException {
+        int[] sizes = new int[]{0, 1, 7, 8, 9, 100, 1000, 4097};
+
+        for (int n : sizes) {
+            Point[] points = randomPoints(n, n);
+            checkStructure(Rtree.bulkLoad(points, 8), points, 8);
+        }
+    }
+
+    @Test
+    public void testHilbertLoadStructure() throws OperationNotSupportedException {
+        int[] sizes = new int[]{0, 1, 5, 6, 37, 1000, 2000};
+
+        for (int n : sizes) {
+            Point[] points = randomPoints(n, n + 1);
+            checkStructure(Rtree.hilbertLoad(points, 6), points, 6);
+        }
+    }
+
+    @Test
+    public void testHilbertCurve() {
+        /* First 4^k cells of the curve fill the 2^k x 2^k square at the origin */
+        int side = 16;
+        int[] xs = new int[side * side];
+        int[] ys = new int[side * side];
+        boolean[] seen = new boolean[side * side];
+        for (int x = 0; x < side; ++x)
+            for (int y = 0; y < side; ++y) {
+                int d = (int) HilbertCurve.index(x, y);
+                Assert.assertTrue(d < side * side);
+                Assert.assertFalse(seen[d]);
+                seen[d] = true;
+                xs[d] = x;
+                ys[d] = y;
+            }
+
+        /* Consecutive cells along the curve are adjacent */
+        for (int d = 1; d < side * side; ++d)
+            Assert.assertEquals(1, Math.abs(xs[d] - xs[d - 1]) + Math.abs(ys[d] - ys[d - 1]));
+    }
+
+    @Test
+    public void testVanEmdeBoasLayout() {
+        /* Binary tree of height 4: top tree of 3 nodes followed by four bottom trees of 3 nodes */
+        VebLayout binary = new VebLayout(4, 2);
+        int[] expected = new int[]{0, 1, 2, 3, 4, 7, 10, 13, 5, 6, 8, 9, 11, 12, 14, 15};
+        for (int i = 1; i <= 15; ++i)
+            Assert.assertEquals(expected[i], binary.slot(i));
+
+        /* Slots are a permutation of the tree array */
+        int degree = 3, height = 6;
+        int numNodes = (int) ((Math.pow(degree, height) - 1) / (degree - 1));
+        VebLayout layout = new VebLayout(height, degree);
+        boolean[] used = new boolean[numNodes + 1];
+        for (int i = 1; i <= numNodes; ++i) {
+            int slot = layout.slot(i);
+            Assert.assertTrue(slot >= 1 && slot <= numNodes);
+            Assert.assertFalse(used[slot]);
+            used[slot] = true;
+        }
+    }
+
+    @Test
+    public void testSearchInVanEmdeBoasLayout() throws OperationNotSupportedException {
+        Point[] points = randomPoints(6000, 61);
+        Rtree breadthFirst = Rtree.bulkLoad(points, 6);
+        Rtree veb = Rtree.bulkLoad(points, 6);
+        veb.setLayout(Rtree.VAN_EMDE_BOAS);
+        Assert.assertEquals(Rtree.VAN_EMDE_BOAS, veb.getLayout());
+        checkStructure(veb, points, 6);
+
+        Random random = new Random(67);
+        for (int q = 0; q < 30; ++q) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+            Rectangle window = new Rectangle(x, y, x + 60, y + 60);
+            Assert.assertEquals(breadthFirst.query(window).numHits, veb.query(window).numHits);
+            Assert.assertEquals(breadthFirst.countInRange(window), veb.countInRange(window));
+        }
+
+        veb.setLayout(Rtree.BREADTH_FIRST);
+        for (int i = 1; i <= veb.getNumNodes(); ++i)
+            Assert.assertSame(veb.getNode(i), veb.tree[i]);
+    }
+
+    @Test
+    public void testSearch() throws OperationNotSupportedException {
+        Point[] points = randomPoints(5000, 3);
+        final Rtree rtree = Rtree.bulkLoad(points, 16);
+        Random random = new Random(11);
+
+        for (int q = 0; q < 50; ++q) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+            final Rectangle window = new Rectangle(x, y, x + random.nextDouble() * 200, y + random.nextDouble() * 200);
+            final boolean[] found = new boolean[points.length];
+
+            rtree.search(window, new LeafVisitor() {
+                @Override
+                public void visit(long offset, long size, int count) {
+                    for (int r = (int) offset; r < offset + count; ++r)
+                        found[rtree.getRecordId(r)] = true;
+                }
+            });
+
+            for (int i = 0; i < points.length; ++i)
+                if (window.isIntersected(points[i]))
+                    Assert.assertTrue(found[i]);
+        }
+    }
+
+    @Test
+    public void testFlatRtreeSearch() {
+        Rtree rtree = Rtree.bulkLoad(randomPoints(4000, 31), 12);
+        FlatRtree flat = new FlatRtree(rtree);
+        Random random = new Random(37);
+
+        for (int q = 0; q < 50; ++q) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+            Rectangle window = new Rectangle(x, y, x + random.nextDouble() * 100, y + random.nextDouble() * 100);
+
+            final StringBuilder expected = new StringBuilder();
+            rtree.search(window, new LeafVisitor() {
+                @Override
+                public void visit(long offset, long size, int count) {
+                    expected.append(offset).append(':').append(count).append(' ');
+                }
+            });
+
+            final StringBuilder actual = new StringBuilder();
+            flat.search(window, new LeafVisitor() {
+                @Override
+                public void visit(long offset, long size, int count) {
+                    actual.append(offset).append(':').append(count).append(' ');
+                }
+            });
+
+            Assert.assertEquals(expected.toString(), actual.toString());
+        }
+    }
+
+    @Test
+    public void testFilterAndRefineQuery() throws OperationNotSupportedException {
+        Random random = new Random(43);
+        Polygon[] zones = new Polygon[800];
+        for (int i = 0; i < zones.length; ++i) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+            double w = 5 + random.nextDouble() * 40;
+            zones[i] = new Polygon(new Point[]{new Point(x, y), new Point(x + w, y),
+                    new Point(x, y + w), new Point(x, y)}); // right triangle
+        }
+
+        Rtree rtree = Rtree.bulkLoad(zones, 8);
+
+        for (int q = 0; q < 100; ++q) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+            Shape query = q % 2 == 0 ? new Point(x, y) : new Rectangle(x, y, x + 20, y + 20);
+
+            RefineResult result = rtree.query(query);
+
+            int expectedHits = 0, expectedCandidates = 0;
+            for (Polygon zone : zones) {
+                if (zone.getMBR().isIntersected(query.getMBR()))
+                    ++expectedCandidates;
+                if (zone.isIntersected(query))
+                    ++expectedHits;
+            }
+
+            Assert.assertEquals(expectedCandidates, result.candidates);
+            Assert.assertEquals(expectedHits, result.numHits);
+            for (int hit : result.getHits())
+                Assert.assertTrue(rtree.getRecord(hit).isIntersected(query));
+        }
+    }
+
+    @Test
+    public void testNearestNeighbours() throws OperationNotSupportedException {
+        Point[] points = randomPoints(3000, 5);
+        Rtree rtree = Rtree.bulkLoad(points, 10);
+        Random random = new Random(13);
+
+        for (int q = 0; q < 30; ++q) {
+            Point query = new Point(random.nextDouble() * 1000, random.nextDouble() * 1000);
+            int[] nearest = rtree.nearestNeighbours(query, 10);
+            Assert.assertEquals(10, nearest.length);
+
+            double[] distances = new double[points.length];
+            for (int i = 0; i < points.length; ++i)
+                distances[i] = points[i].distanceTo(query);
+            Arrays.sort(distances);
+
+            for (int i = 0; i < nearest.length; ++i)
+                Assert.assertEquals(distances[i], rtree.getRecord(nearest[i]).distanceTo(query), Shape.EPS);
+        }
+
+        Assert.assertEquals(3, Rtree.bulkLoad(randomPoints(3, 1), 4).nearestNeighbours(new Point(0, 0), 5).length);
+    }
+
+    @Test
+    public void testNearestNeighbourIterator() throws OperationNotSupportedException {
+        Point[] points = randomPoints(2000, 19);
+        Rtree rtree = Rtree.hilbertLoad(points, 8);
+        Point query = new Point(250, 750);
+
+        /* Iterating all records reports each once in increasing distance */
+        NearestNeighbourIterator iterator = rtree.nearestNeighbours(query);
+        boolean[] seen = new boolean[points.length];
+        double previous = 0;
+        int count = 0;
+        while (iterator.hasNext()) {
+            int record = iterator.next();
+            Assert.assertFalse(seen[record]);
+            seen[record] = true;
+            Assert.assertEquals(rtree.getRecord(record).distanceTo(query), iterator.distance(), Shape.EPS);
+            Assert.assertTrue(iterator.distance() >= previous);
+            previous = iterator.distance();
+            ++count;
+        }
+        Assert.assertEquals(points.length, count);
+
+        /* Prefix of the iteration is the k nearest neighbours */
+        int[] nearest = rtree.nearestNeighbours(query, 25);
+        iterator = rtree.nearestNeighbours(query);
+        for (int record : nearest)
+            Assert.assertEquals(rtree.getRecord(record).distanceTo(query),
+                    rtree.getRecord(iterator.next()).distanceTo(query), Shape.EPS);
+
+        Assert.assertFalse(Rtree.bulkLoad(new Point[0], 4).nearestNeighbours(query).hasNext());
+    }
+
+    @Test
+    public void testCountInRange() throws OperationNotSupportedException {
+        Random random = new Random(59);
+        Rectangle[] mbrs = new Rectangle[3000];
+        for (int i = 0; i < mbrs.length; ++i) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+            mbrs[i] = new Rectangle(x, y, x + random.nextDouble() * 5, y + random.nextDouble() * 5);
+        }
+        Rtree rtree = Rtree.bulkLoad(mbrs, 9);
+
+        for (int q = 0; q < 50; ++q) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+            double size = random.nextDouble() * 500;
+            Rectangle window = new Rectangle(x - size, y - size, x + size, y + size);
+
+            int expected = 0;
+            for (Rectangle mbr : mbrs)
+                if (Rtree.intersects(mbr, window.minPoint.x, window.minPoint.y, window.maxPoint.x, window.maxPoint.y))
+                    ++expected;
+            Assert.assertEquals(expected, rtree.countInRange(window));
+        }
+
+        Assert.assertEquals(3000, rtree.countInRange(new Rectangle(-1, -1, 1006, 1006)));
+        Assert.assertEquals(0, Rtree.bulkLoad(new Rectangle[0], 4).countInRange(new Rectangle(0, 0, 1, 1)));
+    }
+
+    @Test
+    public void testBatchLocate() throws OperationNotSupportedException {
+        Random random = new Random(53);
+        Rectangle[] zones = new Rectangle[400];
+        for (int i = 0; i < zones.length; ++i) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+            zones[i] = new Rectangle(x, y, x + 30, y + 30);
+        }
+        Rtree rtree = Rtree.bulkLoad((Shape[]) zones, 8);
+
+        int n = 10000;
+        double[] xs = new double[n], ys = new double[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = random.nextDouble() * 1100 - 50;
+            ys[i] = random.nextDouble() * 1100 - 50;
+        }
+
+        int[] out = new int[n];
+        rtree.locate(xs, ys, out);
+
+        for (int i = 0; i < n; ++i) {
+            Point point = new Point(xs[i], ys[i]);
+            int expected = -1;
+            for (int r = 0; r < rtree.getNumRecords() && expected < 0; ++r)
+                if (rtree.getRecord(r).isIntersected(point))
+                    expected = r;
+            Assert.assertEquals(expected, out[i]);
+        }
+    }
+
+    @Test
+    public void testBulkLoadRectangles() {
+        Random random = new Random(7);
+        Rectangle[] mbrs = new Rectangle[500];
+        for (int i = 0; i < mbrs.length; ++i) {
+            double x = random.nextDouble() * 100, y = random.nextDouble() * 100;
+            mbrs[i] = new Rectangle(x, y, x + random.nextDouble(), y + random.nextDouble());
+        }
+
+        Rtree rtree = Rtree.bulkLoad(mbrs, 4);
+        Assert.assertEquals(5, rtree.getHeight());
+        Assert.assertNull(rtree.getRecord(0));
+        for (int i = 0; i < mbrs.length; ++i)
+            Assert.assertSame(mbrs[rtree.getRecordId(i)], rtree.getRecordMbr(i));
+
+        Shape root = rtree.getNode(1).mbr;
+        Assert.assertEquals(500, rtree.getNode(1).count);
+        Assert.assertNotNull(root);
+    }
+}
@@ -0,0 +1,119 @@
+package com.swvl.geometry.ds.rtrees;
+
+import com.swvl.geometry.shapes.Point;
+import com.swvl.geometry.shapes.Rectangle;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SpatialJoinTest {
+
+    @Test
+    public void testJoinMatchesNestedLoops() throws OperationNotSupportedException, InterruptedException {
+        Random random = new Random(41);
+
+        Point[] pings = new Point[3000];
+        for (int i = 0; i < pings.length; ++i)
+            pings[i] = new Point(random.nextDouble() * 1000, random.nextDouble() * 1000);
+
+        Rectangle[] zones = new Rectangle[200];
+        for (int i = 0; i < zones.length; ++i) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000;
+            zones[i] = new Rectangle(x, y, x + random.nextDouble() * 60, y + random.nextDouble() * 60);
+        }
+
+        Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < pings.length; ++i)
+            for (int j = 0; j < zones.length; ++j)
+                if (zones[j].isIntersected(pings[i]))
+                    expected.add(i + "-" + j);
+
+        final Rtree r = Rtree.bulkLoad(pings, 16);
+        final Rtree s = Rtree.bulkLoad(zones, 4);
+
+        final Set<String> sequential = new HashSet<String>();
+        SpatialJoin.join(r, s, new JoinVisitor() {
+            @Override
+            public void visit(int record1, int record2) {
+                Assert.assertTrue(sequential.add(r.getRecordId(record1) + "-" + s.getRecordId(record2)));
+            }
+        });
+        Assert.assertEquals(expected, sequential);
+
+        final Set<String> parallel = Collections.synchronizedSet(new HashSet<String>());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            SpatialJoin.join(r, s, new JoinVisitor() {
+                @Override
+                public void visit(int record1, int record2) {
+                    Assert.assertTrue(parallel.add(r.getRecordId(record1) + "-" + s.getRecordId(record2)));
+                }
+            }, executor);
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(expected, parallel);
+    }
+
+    @Test
+    public void testParallelJoinOfSkewedData() throws InterruptedException {
+        /* Most records fall in one corner, thus the pair of roots is split unevenly */
+        Random random = new Random(9);
+        Point[] pings = new Point[5000];
+        for (int i = 0; i < pings.length; ++i) {
+            double extent = i % 10 == 0 ? 1000 : 20;
+            pings[i] = new Point(random.nextDouble() * extent, random.nextDouble() * extent);
+        }
+        Rectangle[] zones = new Rectangle[500];
+        for (int i = 0; i < zones.length; ++i) {
+            double x = random.nextDouble() * 30, y = random.nextDouble() * 30;
+            zones[i] = new Rectangle(x, y, x + random.nextDouble() * 5, y + random.nextDouble() * 5);
+        }
+
+        final Rtree r = Rtree.hilbertLoad(pings, 8);
+        final Rtree s = Rtree.bulkLoad(zones, 8);
+        final AtomicLong sequential = new AtomicLong();
+        SpatialJoin.join(r, s, new JoinVisitor() {
+            @Override
+            public void visit(int record1, int record2) {
+                sequential.addAndGet(31L * r.getRecordId(record1) + s.getRecordId(record2) + 1);
+            }
+        });
+        Assert.assertTrue(sequential.get() > 0);
+
+        final AtomicLong parallel = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            SpatialJoin.join(r, s, new JoinVisitor() {
+                @Override
+                public void visit(int record1, int record2) {
+                    parallel.addAndGet(31L * r.getRecordId(record1) + s.getRecordId(record2) + 1);
+                }
+            }, executor);
+            Assert.assertEquals(sequential.get(), parallel.get());
+
+            /* Exception of a visitor is rethrown once all tasks finished */
+            try {
+                SpatialJoin.join(r, s, new JoinVisitor() {
+                    @Override
+                    public void visit(int record1, int record2) {
+                        throw new IllegalStateException("visitor");
+                    }
+                }, executor);
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                Assert.assertEquals("visitor", e.getMessage());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.swvl.geometry.shapes;
+
+import com.swvl.geometry.Utilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Random;
+
+public class ConvexPolygonTest {
+
+    private static Point[] randomPoints(int n, Random random) {
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; ++i)
+            points[i] = new Point(random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50);
+        return points;
+    }
+
+    @Test
+    public void testConvexHull() throws OperationNotSupportedException {
+        Random random = new Random(1);
+        for (int q = 0; q < 50; ++q) {
+            Point[] points = randomPoints(3 + random.nextInt(300), random);
+            Polygon hull = new Polygon(Utilities.convexHull(points));
+
+            hull.validate();
+            Assert.assertTrue(hull.isConvex());
+            for (Point point : points)
+                Assert.assertTrue(PreparedPolygonTest.bruteForceContains(hull, point.x, point.y));
+
+            /* Starts at the smallest point by compareTo */
+            for (Point point : points)
+                Assert.assertTrue(hull.points[0].compareTo(point) <= 0);
+        }
+
+        /* Duplicate and collinear points are dropped */
+        Point[] square = new Point[]{new Point(0, 0), new Point(2, 0), new Point(1, 0), new Point(2, 2),
+                new Point(0, 2), new Point(1, 1), new Point(2, 2), new Point(0, 1)};
+        Assert.assertEquals(5, Utilities.convexHull(square).length);
+    }
+
+    @Test
+    public void testIsConvex() {
+        Assert.assertTrue(new Polygon(new Point[]{new Point(0, 0), new Point(10, 0), new Point(10, 10),
+                new Point(5, 15), new Point(0, 10), new Point(0, 0)}).isConvex());
+
+        /* Collinear vertex keeps polygon convex while a reflex one does not */
+        Assert.assertTrue(new Polygon(new Point[]{new Point(0, 0), new Point(5, 0), new Point(10, 0),
+                new Point(10, 10), new Point(0, 10), new Point(0, 0)}).isConvex());
+        Assert.assertFalse(new Polygon(new Point[]{new Point(0, 0), new Point(10, 0), new Point(5, 2),
+                new Point(10, 10), new Point(0, 10), new Point(0, 0)}).isConvex());
+
+        /* Pentagram turns left at every vertex but winds twice */
+        Point[] pentagram = new Point[6];
+        for (int i = 0; i < 5; ++i) {
+            double angle = 2 * Math.PI * 2 * i / 5;
+            pentagram[i] = new Point(Math.cos(angle), Math.sin(angle));
+        }
+        pentagram[5] = pentagram[0];
+        Assert.assertFalse(new Polygon(pentagram).isConvex());
+
+        Assert.assertFalse(PreparedPolygonTest.randomStar(50, 0, 0, 2).isConvex());
+    }
+
+    @Test
+    public void testContainsMatchesBruteForce() throws OperationNotSupportedException {
+        Random random = new Random(3);
+        for (int q = 0; q < 30; ++q) {
+            Polygon hull = new Polygon(Utilities.convexHull(randomPoints(3 + random.nextInt(200), random)));
+            ConvexPolygon convex = new ConvexPolygon(hull);
+
+            for (int k = 0; k < 500; ++k) {
+                double x = random.nextDouble() * 120 - 60, y = random.nextDouble() * 120 - 60;
+                Assert.assertEquals(PreparedPolygonTest.bruteForceContains(hull, x, y), convex.contains(x, y));
+                Assert.assertEquals(convex.contains(x, y), convex.isIntersected(new Point(x, y)));
+            }
+
+            /* Vertices and edge midpoints are contained */
+            for (int i = 0; i < hull.points.length - 1; ++i) {
+                Point p = hull.points[i], r = hull.points[i + 1];
+                Assert.assertTrue(convex.contains(p.x, p.y));
+                Assert.assertTrue(convex.contains((p.x + r.x) / 2, (p.y + r.y) / 2));
+            }
+        }
+
+        try {
+            new ConvexPolygon(PreparedPolygonTest.randomStar(50, 0, 0, 2));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testHullRejectionOfValidatedPolygon() throws OperationNotSupportedException {
+        Polygon star = PreparedPolygonTest.randomStar(300, 0, 0, 5);
+        ValidatedPolygon validated = new ValidatedPolygon(star);
+        Assert.assertFalse(validated.isConvex());
+        Assert.assertTrue(validated.getConvexHull().getNumVertices() < 300);
+
+        Random random = new Random(6);
+        for (int q = 0; q < 3000; ++q) {
+            double x = random.nextDouble() * 240 - 120, y = random.nextDouble() * 240 - 120;
+            Assert.assertEquals(PreparedPolygonTest.bruteForceContains(star, x, y), validated.contains(x, y));
+        }
+
+        ValidatedPolygon square = new ValidatedPolygon(new Point[]{new Point(0, 0), new Point(4, 0),
+                new Point(4, 4), new Point(0, 4), new Point(0, 0)});
+        Assert.assertTrue(square.isConvex());
+        Assert.assertTrue(square.contains(new Point(4, 2)));
+        Assert.assertFalse(square.contains(new Point(4.1, 2)));
+    }
+}
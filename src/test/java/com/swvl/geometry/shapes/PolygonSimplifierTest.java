@@ -0,0 +1,154 @@
+package com.swvl.geometry.shapes;
+
+import com.swvl.geometry.SegmentSweep;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Random;
+
+public class PolygonSimplifierTest {
+
+    /**
+     * Circle of radius 100 sampled densely with noise smaller than 0.1 and a few notches
+     */
+    private static Polygon noisyCircle(int n, long seed) {
+        Random random = new Random(seed);
+        Point[] points = new Point[n + 1];
+        for (int i = 0; i < n; ++i) {
+            double angle = 2 * Math.PI * i / n;
+            double radius = 100 + random.nextDouble() * 0.1 - (i % (n / 8) < n / 40 ? 30 : 0);
+            points[i] = new Point(radius * Math.cos(angle), radius * Math.sin(angle));
+        }
+        points[n] = points[0];
+        return new Polygon(points);
+    }
+
+    private static boolean isSimple(Polygon polygon) {
+        int n = polygon.points.length;
+        double[] xs = new double[n], ys = new double[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = polygon.points[i].x;
+            ys[i] = polygon.points[i].y;
+        }
+        return !SegmentSweep.selfIntersects(xs, ys, n);
+    }
+
+    /**
+     * Maximum distance of vertices of polygon to edges of simplified polygon
+     */
+    private static double maxDeviation(Polygon polygon, Polygon simplified) throws OperationNotSupportedException {
+        double max = 0;
+        LineSegment edge = new LineSegment();
+        for (Point point : polygon.points) {
+            double min = Double.MAX_VALUE;
+            for (int i = 0; i < simplified.points.length - 1; ++i) {
+                edge.set(simplified.points[i], simplified.points[i + 1]);
+                min = Math.min(min, edge.distanceTo(point));
+            }
+            max = Math.max(max, min);
+        }
+        return max;
+    }
+
+    @Test
+    public void testDouglasPeucker() throws OperationNotSupportedException {
+        Polygon polygon = noisyCircle(4000, 1);
+        Polygon simplified = PolygonSimplifier.simplify(polygon, 1);
+
+        simplified.validate();
+        Assert.assertTrue(isSimple(simplified));
+        Assert.assertTrue(simplified.points.length < polygon.points.length / 10);
+        Assert.assertTrue(maxDeviation(polygon, simplified) <= 1 + Shape.EPS);
+
+        /* Huge tolerance still keeps a polygon */
+        Polygon triangle = PolygonSimplifier.simplify(polygon, 1e6);
+        triangle.validate();
+        Assert.assertTrue(triangle.points.length >= 4);
+    }
+
+    @Test
+    public void testDouglasPeuckerKeepsTopology() throws OperationNotSupportedException {
+        /* Spike from the bottom edge into a bump of the top edge which is flattened by tolerance 1.5 */
+        Polygon polygon = new Polygon(new Point[]{
+                new Point(0, 0), new Point(25, 0), new Point(49.9, 0), new Point(50, 10.5),
+                new Point(50.1, 0), new Point(75, 0), new Point(100, 0), new Point(100, 10),
+                new Point(75, 10), new Point(51, 10), new Point(50, 11), new Point(49, 10),
+                new Point(25, 10), new Point(0, 10), new Point(0, 0)
+        });
+        Polygon simplified = PolygonSimplifier.simplify(polygon, 1.5);
+        simplified.validate();
+        Assert.assertTrue(isSimple(simplified));
+        Assert.assertTrue(simplified.isIntersected(new Point(50, 10.5)));
+        Assert.assertEquals(polygon.points.length - 4, simplified.points.length);
+
+        /* Dropping vertices must not fold the last edge back along the previous one */
+        double[] xs = {7, 10, 8, 6, 5, 4, 3, 4, 3, 6, 7, 10, 7}, ys = {4, 7, 7, 5, 7, 5, 4, 3, 0, 2, 2, 1, 4};
+        Point[] points = new Point[xs.length];
+        for (int i = 0; i < xs.length; ++i)
+            points[i] = new Point(xs[i], ys[i]);
+        polygon = new Polygon(points);
+        Assert.assertTrue(isSimple(polygon));
+        simplified = PolygonSimplifier.simplify(polygon, 3.84);
+        simplified.validate();
+        Assert.assertTrue(isSimple(simplified));
+
+        Random random = new Random(3);
+        for (int q = 0; q < 50; ++q) {
+            polygon = PreparedPolygonTest.randomStar(5 + random.nextInt(200), 0, 0, q);
+            simplified = PolygonSimplifier.simplify(polygon, 5 + random.nextDouble() * 40);
+            simplified.validate();
+            Assert.assertTrue(isSimple(simplified));
+        }
+    }
+
+    @Test
+    public void testInnerAndOuterRings() throws OperationNotSupportedException {
+        for (long seed = 1; seed <= 3; ++seed) {
+            Polygon polygon = seed == 1 ? noisyCircle(3000, 2) : PreparedPolygonTest.randomStar(500, 0, 0, seed);
+            double tolerance = 2;
+            Polygon outer = PolygonSimplifier.outerRing(polygon, tolerance);
+            Polygon inner = PolygonSimplifier.innerRing(polygon, tolerance);
+
+            outer.validate();
+            inner.validate();
+            Assert.assertTrue(isSimple(outer));
+            Assert.assertTrue(isSimple(inner));
+            Assert.assertTrue(outer.points.length < polygon.points.length);
+            Assert.assertTrue(inner.points.length < polygon.points.length);
+
+            Random random = new Random(seed);
+            for (int q = 0; q < 3000; ++q) {
+                Point point = new Point(random.nextDouble() * 240 - 120, random.nextDouble() * 240 - 120);
+                boolean inPolygon = polygon.isIntersected(point);
+                if (inPolygon)
+                    Assert.assertTrue(outer.isIntersected(point));
+                if (inner.isIntersected(point))
+                    Assert.assertTrue(inPolygon);
+
+                /* Band between the rings is within tolerance of the boundary */
+                if (outer.isIntersected(point) && !inPolygon)
+                    Assert.assertTrue(polygon.distanceTo(point) <= tolerance + Shape.EPS);
+            }
+        }
+    }
+
+    @Test
+    public void testSimplifiedPolygonContains() throws OperationNotSupportedException {
+        Polygon polygon = noisyCircle(3000, 4);
+        SimplifiedPolygon simplified = new SimplifiedPolygon(polygon, 1);
+
+        Random random = new Random(5);
+        int band = 0;
+        for (int q = 0; q < 5000; ++q) {
+            Point point = new Point(random.nextDouble() * 240 - 120, random.nextDouble() * 240 - 120);
+            Assert.assertEquals(PreparedPolygonTest.bruteForceContains(polygon, point.x, point.y),
+                    simplified.contains(point));
+            if (simplified.getOuterRing().isIntersected(point) && !simplified.getInnerRing().isIntersected(point))
+                ++band;
+        }
+
+        /* Most points are answered by the rings alone */
+        Assert.assertTrue(band < 500);
+    }
+}
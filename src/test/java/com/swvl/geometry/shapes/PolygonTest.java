@@ -1,5 +1,6 @@
 package com.swvl.geometry.shapes;
 
+import com.swvl.geometry.Utilities;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -336,6 +337,45 @@ public class PolygonTest {
         Assert.assertFalse(poly2.contains(polygon10));
     }
 
+    @Test
+    public void testPointInPolygonOnCoordinates() throws OperationNotSupportedException {
+        Polygon polygon = PreparedPolygonTest.randomStar(300, 20, -40, 17);
+        int n = polygon.points.length - 1;
+        double[] xs = new double[n], ys = new double[n];
+        for (int i = 0; i < n; ++i) {
+            xs[i] = polygon.points[i].x;
+            ys[i] = polygon.points[i].y;
+        }
+
+        java.util.Random random = new java.util.Random(3);
+        for (int q = 0; q < 3000; ++q) {
+            double x = random.nextDouble() * 240 - 100, y = random.nextDouble() * 240 - 160;
+            Assert.assertEquals(PreparedPolygonTest.bruteForceContains(polygon, x, y),
+                    Utilities.polygonPointIntersection(x, y, xs, ys, n));
+            Assert.assertEquals(PreparedPolygonTest.bruteForceContains(polygon, x, y),
+                    polygon.contains(new Point(x, y)));
+        }
+
+        /* Vertices and edge midpoints are on the boundary whether or not the ring is closed */
+        double[] closedXs = new double[n + 1], closedYs = new double[n + 1];
+        System.arraycopy(xs, 0, closedXs, 0, n);
+        System.arraycopy(ys, 0, closedYs, 0, n);
+        closedXs[n] = xs[0];
+        closedYs[n] = ys[0];
+        for (int i = 0; i < n; ++i) {
+            int j = (i + 1) % n;
+            Assert.assertTrue(Utilities.polygonPointIntersection(xs[i], ys[i], xs, ys, n));
+            Assert.assertTrue(Utilities.polygonPointIntersection((xs[i] + xs[j]) / 2, (ys[i] + ys[j]) / 2, xs, ys, n));
+            Assert.assertTrue(Utilities.polygonPointIntersection((xs[i] + xs[j]) / 2, (ys[i] + ys[j]) / 2,
+                    closedXs, closedYs, n + 1));
+        }
+
+        /* Clockwise order gives a negative winding number */
+        double[] cwXs = new double[]{0, 0, 10, 10}, cwYs = new double[]{0, 10, 10, 0};
+        Assert.assertTrue(Utilities.polygonPointIntersection(5, 5, cwXs, cwYs, 4));
+        Assert.assertFalse(Utilities.polygonPointIntersection(15, 5, cwXs, cwYs, 4));
+    }
+
     public static void main(String[] args) throws OperationNotSupportedException {
         Point p = new Point(5, 10);
         poly1.contains(p);
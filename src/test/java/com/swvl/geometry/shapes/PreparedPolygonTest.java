@@ -0,0 +1,114 @@
+package com.swvl.geometry.shapes;
+
+import com.swvl.geometry.Utilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Random;
+
+public class PreparedPolygonTest {
+
+    /**
+     * Concave star-shaped polygon in counter-clockwise order around (cx, cy)
+     */
+    static Polygon randomStar(int n, double cx, double cy, long seed) {
+        Random random = new Random(seed);
+        Point[] points = new Point[n + 1];
+        for (int i = 0; i < n; ++i) {
+            double angle = 2 * Math.PI * i / n;
+            double radius = 50 + random.nextDouble() * 50;
+            points[i] = new Point(cx + radius * Math.cos(angle), cy + radius * Math.sin(angle));
+        }
+        points[n] = points[0];
+        return new Polygon(points);
+    }
+
+    /**
+     * Brute force crossing number over all edges of polygon
+     */
+    static boolean bruteForceContains(Polygon polygon, double x, double y) throws OperationNotSupportedException {
+        Point point = new Point(x, y);
+        boolean inside = false;
+        for (int i = 0; i < polygon.points.length - 1; ++i) {
+            Point p = polygon.points[i], q = polygon.points[i + 1];
+            if (new LineSegment(p, q).contains(point))
+                return true;
+            if ((p.y > y) != (q.y > y) && x < p.x + (y - p.y) * (q.x - p.x) / (q.y - p.y))
+                inside = !inside;
+        }
+        return inside;
+    }
+
+    @Test
+    public void testContainsMatchesBruteForce() throws OperationNotSupportedException {
+        Polygon[] polygons = new Polygon[]{randomStar(500, 0, 0, 1), randomStar(37, -300, -200, 2),
+                randomStar(3, 10, 10, 3)};
+        Random random = new Random(5);
+
+        for (Polygon polygon : polygons) {
+            PreparedPolygon prepared = new PreparedPolygon(polygon);
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (Point point : polygon.points) {
+                minX = Math.min(minX, point.x);
+                minY = Math.min(minY, point.y);
+                maxX = Math.max(maxX, point.x);
+                maxY = Math.max(maxY, point.y);
+            }
+
+            for (int q = 0; q < 3000; ++q) {
+                double x = minX - 10 + random.nextDouble() * (maxX - minX + 20);
+                double y = minY - 10 + random.nextDouble() * (maxY - minY + 20);
+                Point point = new Point(x, y);
+                Assert.assertEquals(bruteForceContains(polygon, x, y), prepared.contains(x, y));
+                Assert.assertEquals(Utilities.polygonPointIntersection(point, polygon), prepared.contains(x, y));
+                Assert.assertEquals(prepared.contains(x, y), prepared.isIntersected(point));
+            }
+        }
+    }
+
+    @Test
+    public void testBoundary() throws OperationNotSupportedException {
+        Polygon polygon = randomStar(200, 100, 100, 7);
+        PreparedPolygon prepared = new PreparedPolygon(polygon);
+
+        for (int i = 0; i < polygon.points.length - 1; ++i) {
+            Point p = polygon.points[i], q = polygon.points[i + 1];
+            Assert.assertTrue(prepared.onBoundary(p.x, p.y));
+            Assert.assertTrue(prepared.contains(p.x, p.y));
+            Assert.assertTrue(prepared.onBoundary((p.x + q.x) / 2, (p.y + q.y) / 2));
+            Assert.assertTrue(prepared.contains(new Point((p.x + q.x) / 2, (p.y + q.y) / 2)));
+        }
+
+        Assert.assertFalse(prepared.onBoundary(100, 100));
+        Assert.assertTrue(prepared.contains(100, 100));
+        Assert.assertFalse(prepared.contains(1000, 100));
+    }
+
+    @Test
+    public void testIndexOfLongEdges() throws OperationNotSupportedException {
+        /* Saw whose teeth span the whole height would copy every edge into most buckets */
+        int teeth = 300;
+        Point[] points = new Point[2 * teeth + 3];
+        points[0] = new Point(0, 0);
+        points[1] = new Point(teeth, 0);
+        for (int i = 0; i < teeth; ++i) {
+            points[2 * i + 2] = new Point(teeth - i, 1000);
+            points[2 * i + 3] = new Point(teeth - i - 0.5, 1);
+        }
+        points[2 * teeth + 1] = new Point(0, 1000);
+        points[2 * teeth + 2] = points[0];
+        Polygon saw = new Polygon(points);
+
+        PreparedPolygon prepared = new PreparedPolygon(saw);
+        Assert.assertTrue(prepared.getNumBuckets() < teeth / 10);
+
+        Random random = new Random(13);
+        for (int q = 0; q < 2000; ++q) {
+            double x = random.nextDouble() * (teeth + 2) - 1, y = random.nextDouble() * 1002 - 1;
+            Assert.assertEquals(bruteForceContains(saw, x, y), prepared.contains(x, y));
+        }
+
+        Assert.assertTrue(new PreparedPolygon(randomStar(1000, 0, 0, 11)).getNumBuckets() > 100);
+    }
+}
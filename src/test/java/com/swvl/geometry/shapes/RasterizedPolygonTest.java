@@ -0,0 +1,94 @@
+package com.swvl.geometry.shapes;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Random;
+
+public class RasterizedPolygonTest {
+
+    @Test
+    public void testContainsMatchesBruteForce() throws OperationNotSupportedException {
+        Polygon[] polygons = new Polygon[]{PreparedPolygonTest.randomStar(400, 0, 0, 1),
+                PreparedPolygonTest.randomStar(25, -300, -200, 2), PreparedPolygonTest.randomStar(3, 10, 10, 3)};
+        Random random = new Random(5);
+
+        for (Polygon polygon : polygons)
+            for (int resolution : new int[]{1, 7, 64, 300}) {
+                RasterizedPolygon raster = new RasterizedPolygon(polygon, resolution, resolution + 3);
+                double cx = polygon.points[0].x - 100, cy = polygon.points[0].y;
+
+                for (int q = 0; q < 2000; ++q) {
+                    double x = cx - 160 + random.nextDouble() * 320, y = cy - 160 + random.nextDouble() * 320;
+                    Assert.assertEquals(PreparedPolygonTest.bruteForceContains(polygon, x, y), raster.contains(x, y));
+                    Assert.assertEquals(raster.contains(x, y), raster.isIntersected(new Point(x, y)));
+                }
+            }
+    }
+
+    @Test
+    public void testCellsAreClassifiedConservatively() throws OperationNotSupportedException {
+        Polygon polygon = PreparedPolygonTest.randomStar(200, 50, 50, 9);
+        RasterizedPolygon raster = new RasterizedPolygon(polygon, 80, 60);
+
+        double minX = polygon.points[0].x, minY = polygon.points[0].y;
+        for (Point point : polygon.points) {
+            minX = Math.min(minX, point.x);
+            minY = Math.min(minY, point.y);
+        }
+
+        int inside = 0;
+        for (int r = 0; r < raster.getRows(); ++r)
+            for (int c = 0; c < raster.getColumns(); ++c) {
+                /* Sample points strictly inside cell away from its lines */
+                double x0 = minX + c * raster.getCellWidth(), y0 = minY + r * raster.getCellHeight();
+                byte state = raster.getCell(x0 + raster.getCellWidth() / 2, y0 + raster.getCellHeight() / 2);
+                if (state == RasterizedPolygon.BOUNDARY)
+                    continue;
+                if (state == RasterizedPolygon.INSIDE)
+                    ++inside;
+
+                for (double fx : new double[]{0.01, 0.5, 0.99})
+                    for (double fy : new double[]{0.01, 0.5, 0.99}) {
+                        double x = x0 + fx * raster.getCellWidth(), y = y0 + fy * raster.getCellHeight();
+                        Assert.assertEquals(state == RasterizedPolygon.INSIDE,
+                                PreparedPolygonTest.bruteForceContains(polygon, x, y));
+                    }
+            }
+        Assert.assertTrue(inside > 0);
+
+        /* Vertices are on the boundary */
+        for (Point point : polygon.points) {
+            Assert.assertEquals(RasterizedPolygon.BOUNDARY, raster.getCell(point.x, point.y));
+            Assert.assertTrue(raster.contains(point));
+        }
+    }
+
+    @Test
+    public void testResolutionAndMemoryBudget() {
+        Polygon polygon = PreparedPolygonTest.randomStar(500, 0, 0, 4);
+
+        RasterizedPolygon coarse = RasterizedPolygon.withMemoryBudget(polygon, 1000);
+        RasterizedPolygon fine = RasterizedPolygon.withMemoryBudget(polygon, 100000);
+        Assert.assertTrue(coarse.getMemoryUsage() <= 1000);
+        Assert.assertTrue(fine.getMemoryUsage() <= 100000);
+        Assert.assertTrue(fine.getMemoryUsage() > 90000);
+
+        /* Boundary cells take a shrinking fraction of the grid as resolution grows */
+        double coarseFraction = (double) coarse.getNumBoundaryCells() / coarse.getMemoryUsage();
+        double fineFraction = (double) fine.getNumBoundaryCells() / fine.getMemoryUsage();
+        Assert.assertTrue(fineFraction < coarseFraction / 3);
+
+        RasterizedPolygon sized = RasterizedPolygon.withCellSize(polygon, 2.5);
+        Assert.assertTrue(sized.getCellWidth() <= 2.5 && sized.getCellHeight() <= 2.5);
+        Assert.assertEquals(sized.getColumns() * sized.getRows(), sized.getMemoryUsage());
+
+        try {
+            RasterizedPolygon.withMemoryBudget(polygon, 0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
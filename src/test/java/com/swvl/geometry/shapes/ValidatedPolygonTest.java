@@ -0,0 +1,81 @@
+package com.swvl.geometry.shapes;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.naming.OperationNotSupportedException;
+import java.util.Random;
+
+public class ValidatedPolygonTest {
+
+    @Test
+    public void testBoundsAndArea() {
+        ValidatedPolygon polygon = new ValidatedPolygon(new Point[]{
+                new Point(-10, -20),
+                new Point(-2, -20),
+                new Point(-2, -5),
+                new Point(-10, -5),
+                new Point(-10, -20)
+        });
+
+        Rectangle mbr = polygon.getMBR();
+        Assert.assertEquals(new Rectangle(-10, -20, -2, -5), mbr);
+        Assert.assertEquals(120, polygon.getArea(), Shape.EPS);
+        Assert.assertEquals(4, polygon.getNumEdges());
+    }
+
+    @Test
+    public void testValidatedOnConstruction() {
+        Point[] clockwise = new Point[]{new Point(0, 0), new Point(0, 1), new Point(1, 1), new Point(0, 0)};
+        try {
+            new ValidatedPolygon(clockwise);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        Point[] points = new Point[]{new Point(0, 0), new Point(4, 0), new Point(0, 4), new Point(0, 0)};
+        ValidatedPolygon polygon = new ValidatedPolygon(points);
+
+        /* Modifying the given points does not modify the polygon */
+        points[1].x = 100;
+        Assert.assertEquals(4, polygon.getMBR().maxPoint.x, Shape.EPS);
+        Assert.assertEquals(4, polygon.points[1].x, Shape.EPS);
+    }
+
+    @Test
+    public void testPredicatesMatchPolygon() throws OperationNotSupportedException {
+        Polygon polygon = PreparedPolygonTest.randomStar(120, 30, -20, 6);
+        ValidatedPolygon validated = new ValidatedPolygon(polygon);
+        Random random = new Random(9);
+
+        for (int q = 0; q < 300; ++q) {
+            double x = random.nextDouble() * 240 - 90, y = random.nextDouble() * 240 - 140;
+            Point point = new Point(x, y);
+            Assert.assertEquals(polygon.isIntersected(point), validated.isIntersected(point));
+            Assert.assertEquals(polygon.distanceTo(point), validated.distanceTo(point), Shape.EPS);
+
+            LineSegment line = new LineSegment(point, new Point(x + random.nextDouble() * 40, y + random.nextDouble() * 40));
+            Assert.assertEquals(polygon.isIntersected(line), validated.isIntersected(line));
+            Assert.assertEquals(polygon.contains(line), validated.contains(line));
+
+            Rectangle rect = new Rectangle(x, y, x + random.nextDouble() * 30, y + random.nextDouble() * 30);
+            Assert.assertEquals(polygon.isIntersected(rect), validated.isIntersected(rect));
+            Assert.assertEquals(polygon.contains(rect), validated.contains(rect));
+            Assert.assertEquals(rect.isIntersected(polygon), rect.isIntersected(validated));
+        }
+
+        Polygon inner = PreparedPolygonTest.randomStar(30, 30, -20, 7);
+        for (Point point : inner.points) {
+            point.x = 30 + (point.x - 30) / 4;
+            point.y = -20 + (point.y + 20) / 4;
+        }
+        ValidatedPolygon validatedInner = new ValidatedPolygon(inner);
+        Assert.assertTrue(polygon.contains(inner));
+        Assert.assertTrue(validated.contains(validatedInner));
+        Assert.assertTrue(polygon.contains(validatedInner));
+        Assert.assertTrue(validatedInner.isIntersected(validated));
+        Assert.assertFalse(validatedInner.contains(validated));
+        Assert.assertTrue(validated.equals(polygon));
+    }
+}